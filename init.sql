@@ -1,11 +1,22 @@
 CREATE UNLOGGED TABLE payments (
     correlation_id UUID PRIMARY KEY,
-    amount DECIMAL NOT NULL,
-    requested_at TIMESTAMP WITH TIME ZONE NOT NULL,
-    processed_at_default BOOLEAN NOT NULL DEFAULT true
+    amount BIGINT NOT NULL, -- centavos
+    requested_at BIGINT NOT NULL, -- segundos desde a epoch
+    processed_at_default BOOLEAN NOT NULL DEFAULT true,
+    instance TEXT NOT NULL DEFAULT '' -- quem gravou; semeia o resumo em memória depois de um restart
 );
 
-CREATE INDEX payments_requested_at_processed_default ON payments (requested_at, processed_at_default);
+-- amount no índice: as leituras das pontas do resumo saem só do índice
+CREATE INDEX payments_requested_at_processed_default ON payments (requested_at, processed_at_default) INCLUDE (amount);
+
+-- acumulado por minuto, mantido pelo mesmo statement que insere em payments
+CREATE UNLOGGED TABLE payments_rollup (
+    minute BIGINT NOT NULL, -- requested_at / 60
+    processed_at_default BOOLEAN NOT NULL,
+    total_requests BIGINT NOT NULL,
+    total_amount BIGINT NOT NULL, -- centavos
+    PRIMARY KEY (minute, processed_at_default)
+);
 
 CREATE UNLOGGED TABLE payment_processors_state (
        default_healthy BOOLEAN NOT NULL DEFAULT false,
@@ -0,0 +1,68 @@
+package com.jpdev01.rinha.benchmark;
+
+import com.jpdev01.rinha.service.ProcessorRouter;
+import com.jpdev01.rinha.state.CircuitBreaker;
+import com.jpdev01.rinha.state.DefaultClientState;
+import com.jpdev01.rinha.state.FallbackClientState;
+import com.jpdev01.rinha.state.Processor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// decisão de roteamento por pagamento: permissão do breaker + escolha do processador
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CircuitBreakerBenchmark {
+
+    private CircuitBreaker breaker;
+    private ProcessorRouter router;
+
+    @Setup
+    public void setup() {
+        breaker = new CircuitBreaker();
+        DefaultClientState defaultClientState = new DefaultClientState();
+        FallbackClientState fallbackClientState = new FallbackClientState();
+        defaultClientState.setHealthy(true);
+        fallbackClientState.setHealthy(true);
+        router = new ProcessorRouter(defaultClientState, fallbackClientState, 32);
+        for (int i = 0; i < 1_000; i++) {
+            router.record(Processor.DEFAULT, 5_000_000, true);
+            router.record(Processor.FALLBACK, 8_000_000, true);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tryAcquirePermission() {
+        return breaker.tryAcquirePermission();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void onResult() {
+        breaker.onResult(5_000_000, true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Processor choose() {
+        Processor processor = router.choose();
+        // devolve a vaga reservada, senão o limite enche e o resto da medição só vê null
+        if (processor != null) router.release(processor);
+        return processor;
+    }
+}
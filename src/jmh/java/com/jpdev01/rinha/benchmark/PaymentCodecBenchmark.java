@@ -0,0 +1,53 @@
+package com.jpdev01.rinha.benchmark;
+
+import com.jpdev01.rinha.codec.PaymentCodec;
+import com.jpdev01.rinha.entity.Payment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// entrada (POST /payments) e saída (corpo enviado ao processador) do caminho quente
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaymentCodecBenchmark {
+
+    private byte[] body;
+    private Payment payment;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        body = "{\"correlationId\": \"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\", \"amount\": 19.90}".getBytes(StandardCharsets.US_ASCII);
+        payment = PaymentCodec.parse(body);
+        buffer = new byte[PaymentCodec.MAX_ENCODED_LENGTH];
+    }
+
+    @Benchmark
+    public Payment parse() {
+        return PaymentCodec.parse(body);
+    }
+
+    @Benchmark
+    public int encode() {
+        return PaymentCodec.encode(payment, buffer, 0);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return PaymentCodec.toBytes(payment);
+    }
+}
@@ -0,0 +1,82 @@
+package com.jpdev01.rinha.benchmark;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.service.LaneScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offer/poll concorrente no LaneScheduler, comparado com o LinkedBlockingQueue que ele substituiu.
+ * Produtores e consumidores são controlados por -tg, de 1 a 16 de cada lado:
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="PaymentQueue -tg 1,1 -prof gc"
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="PaymentQueue -tg 16,16 -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class PaymentQueueBenchmark {
+
+    @Param({"lane", "linked"})
+    public String queue;
+
+    private LaneScheduler scheduler;
+    private LinkedBlockingQueue<Payment> linked;
+    private final Payment payment = new Payment(1L, 2L, 1990, System.currentTimeMillis() / 1000);
+
+    @State(Scope.Thread)
+    public static class Consumer {
+        final LaneScheduler.Slot slot = new LaneScheduler.Slot();
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        scheduler = new LaneScheduler(1 << 16);
+        linked = new LinkedBlockingQueue<>();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        scheduler.clear();
+        linked.clear();
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public boolean offer() {
+        if ("lane".equals(queue)) {
+            return scheduler.offer(LaneScheduler.Lane.FRESH, payment);
+        }
+        return linked.offer(payment);
+    }
+
+    // poll sem bloquear: com take o consumidor travaria no fim da iteração
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public Object poll(Consumer consumer) {
+        if ("lane".equals(queue)) {
+            return scheduler.poll(consumer.slot) ? consumer.slot.payment() : null;
+        }
+        return linked.poll();
+    }
+}
@@ -0,0 +1,254 @@
+package com.jpdev01.rinha.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpdev01.rinha.RinhaApplication;
+import com.jpdev01.rinha.benchmark.stub.LatencyDistribution;
+import com.jpdev01.rinha.benchmark.stub.StubProcessor;
+import com.jpdev01.rinha.dto.PaymentProcessorSummaryDTO;
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de ponta a ponta do pipeline sem os containers do payment-processor: sobe dois
+ * {@link StubProcessor}, aponta os dois ProcessorClient para eles, injeta pagamentos
+ * no POST /payments numa taxa fixa (carga aberta) e ao final confere o /payments-summary
+ * contra os contadores dos stubs.
+ * <p>
+ * Precisa do Postgres do docker-compose (docker compose up db) para o write-behind:
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.jpdev01.rinha.benchmark.PipelineHarness \
+ * -Djmh.args="--rate=2000 --duration=30 --default-failures=10000-15000"
+ * <p>
+ * Opções: --rate (pagamentos/s), --duration (s), --drain-timeout (s), --default-latency e
+ * --fallback-latency (fixed:10, uniform:5:50, lognormal:10:0.5), --default-failures e
+ * --fallback-failures (janelas em ms desde o início da carga, 5000-8000,15000-16000),
+ * --lost-response-ratio e --db-url.
+ */
+public class PipelineHarness {
+
+    private final Map<String, String> options;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // correlationId -> nanoTime do envio, removido quando algum stub aceita o pagamento
+    private final Map<UUID, Long> inFlight = new ConcurrentHashMap<>();
+    private final LatencyRecorder endToEnd = new LatencyRecorder();
+    private final LatencyRecorder ingress = new LatencyRecorder();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong sentAmountCents = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private PipelineHarness(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new PipelineHarness(options).run();
+        System.exit(0);
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private void run() throws Exception {
+        double lostResponseRatio = Double.parseDouble(option("lost-response-ratio", "0"));
+        try (StubProcessor defaultStub = stub("default", "lognormal:10:0.5", lostResponseRatio);
+             StubProcessor fallbackStub = stub("fallback", "lognormal:20:0.5", lostResponseRatio)) {
+            defaultStub.onAccepted(this::accepted);
+            fallbackStub.onAccepted(this::accepted);
+
+            String dbUrl = option("db-url", "jdbc:postgresql://localhost:5432/postgres");
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RinhaApplication.class).run(
+                    "--server.port=0",
+                    "--services.processor-default=" + defaultStub.url(),
+                    "--services.processor-fallback=" + fallbackStub.url(),
+                    "--services.peer-url=",
+                    "--spring.datasource.url=" + dbUrl)) {
+                String api = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                send(HttpRequest.newBuilder(URI.create(api + "/purge-payments")).POST(HttpRequest.BodyPublishers.noBody()).build());
+
+                Instant from = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+                defaultStub.beginScenario();
+                fallbackStub.beginScenario();
+                generate(api, Integer.parseInt(option("rate", "1000")), Integer.parseInt(option("duration", "30")));
+                boolean drained = drain(Integer.parseInt(option("drain-timeout", "30")));
+                URI summaryUri = URI.create(api + "/payments-summary?from=" + from + "&to=" + Instant.now().plusSeconds(1));
+                PaymentSummaryResponseDTO summary = awaitSummary(summaryUri, defaultStub, fallbackStub);
+                report(drained, summary, defaultStub, fallbackStub);
+            }
+        }
+    }
+
+    private StubProcessor stub(String name, String defaultLatency, double lostResponseRatio) throws Exception {
+        return new StubProcessor(
+                name,
+                LatencyDistribution.parse(option(name + "-latency", defaultLatency)),
+                StubProcessor.FailureWindow.parseAll(option(name + "-failures", "")),
+                lostResponseRatio
+        ).start();
+    }
+
+    private void accepted(UUID correlationId) {
+        Long sentAt = inFlight.remove(correlationId);
+        if (sentAt != null) endToEnd.record(System.nanoTime() - sentAt);
+    }
+
+    // carga aberta: o ritmo de envio não depende do tempo de resposta da API
+    private void generate(String api, int rate, int durationSeconds) {
+        URI uri = URI.create(api + "/payments");
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long total = (long) rate * durationSeconds;
+
+        for (long i = 0; i < total; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            UUID correlationId = UUID.randomUUID();
+            long amountCents = ThreadLocalRandom.current().nextLong(1, 100_000);
+            String body = "{\"correlationId\":\"" + correlationId + "\",\"amount\":" + amountCents / 100 + "." + String.format("%02d", amountCents % 100) + "}";
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            long sentAt = System.nanoTime();
+            inFlight.put(correlationId, sentAt);
+            Thread.startVirtualThread(() -> {
+                int status = send(request);
+                ingress.record(System.nanoTime() - sentAt);
+                if (status == 200) {
+                    sent.incrementAndGet();
+                    sentAmountCents.addAndGet(amountCents);
+                } else {
+                    inFlight.remove(correlationId);
+                    rejected.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    // espera os pagamentos aceitos pela API chegarem a algum stub
+    private boolean drain(int timeoutSeconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        return inFlight.isEmpty();
+    }
+
+    // com respostas perdidas a API só confirma no retry (422): espera o resumo alcançar os stubs
+    private PaymentSummaryResponseDTO awaitSummary(URI uri, StubProcessor defaultStub, StubProcessor fallbackStub) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+            PaymentSummaryResponseDTO summary = objectMapper.readValue(response.body(), PaymentSummaryResponseDTO.class);
+            long expected = defaultStub.counters().accepted() + fallbackStub.counters().accepted();
+            long actual = summary.defaultSummary().totalRequests() + summary.fallbackSummary().totalRequests();
+            if (actual >= expected || System.nanoTime() > deadline) return summary;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+    }
+
+    private int send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private void report(boolean drained, PaymentSummaryResponseDTO summary, StubProcessor defaultStub, StubProcessor fallbackStub) {
+        StubProcessor.Counters defaultCounters = defaultStub.counters();
+        StubProcessor.Counters fallbackCounters = fallbackStub.counters();
+
+        System.out.println();
+        System.out.printf("sent: %d accepted by api (%d cents, %d rejected), %d still in flight%s%n",
+                sent.get(), sentAmountCents.get(), rejected.get(), inFlight.size(), drained ? "" : " (drain timeout)");
+        System.out.printf("throughput: %.1f payments/s reached a processor%n",
+                endToEnd.count() / Math.max(1e-9, endToEnd.spanSeconds()));
+        System.out.println("ingress latency (POST /payments): " + ingress.percentiles());
+        System.out.println("end-to-end latency (POST -> processor): " + endToEnd.percentiles());
+        System.out.println(defaultStub.name() + " stub: " + defaultCounters);
+        System.out.println(fallbackStub.name() + " stub: " + fallbackCounters);
+
+        boolean consistent = compare("default", summary.defaultSummary(), defaultCounters)
+                & compare("fallback", summary.fallbackSummary(), fallbackCounters);
+        long stubTotal = defaultCounters.accepted() + fallbackCounters.accepted();
+        System.out.printf("payments lost between api and processors: %d%n", sent.get() - stubTotal);
+        System.out.println(consistent ? "summary CONSISTENT with processors" : "summary INCONSISTENT with processors");
+    }
+
+    private static boolean compare(String name, PaymentProcessorSummaryDTO summary, StubProcessor.Counters counters) {
+        boolean ok = summary.totalRequests() == counters.accepted() && summary.totalAmountCents() == counters.acceptedAmountCents();
+        System.out.printf("%s: summary %d / %d cents, stub %d / %d cents%s%n", name,
+                summary.totalRequests(), summary.totalAmountCents(),
+                counters.accepted(), counters.acceptedAmountCents(), ok ? "" : "  <-- mismatch");
+        return ok;
+    }
+
+    // amostras em nanos; guarda tudo porque uma rodada tem no máximo alguns milhões
+    private static final class LatencyRecorder {
+
+        private long[] samples = new long[1 << 16];
+        private int count;
+        private long firstAt;
+        private long lastAt;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = nanos;
+            long now = System.nanoTime();
+            if (count == 1) firstAt = now;
+            lastAt = now;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized double spanSeconds() {
+            return (lastAt - firstAt) / 1e9;
+        }
+
+        synchronized String percentiles() {
+            if (count == 0) return "no samples";
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return String.format("p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms (n=%d)",
+                    at(sorted, 0.50), at(sorted, 0.90), at(sorted, 0.99), at(sorted, 0.999),
+                    sorted[count - 1] / 1e6, count);
+        }
+
+        private static double at(long[] sorted, double quantile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jpdev01.rinha.benchmark;
+
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import com.jpdev01.rinha.service.PaymentSummaryAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// custo do /payments-summary em memória com N pagamentos espalhados pela última hora
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SummaryAggregationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private PaymentSummaryAggregator aggregator;
+    private Instant from;
+    private Instant to;
+    private long now;
+
+    @Setup
+    public void setup() {
+        aggregator = new PaymentSummaryAggregator();
+        now = Instant.now().getEpochSecond();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < rows; i++) {
+            aggregator.record(random.nextBoolean(), random.nextLong(1, 100_000), now - random.nextLong(3_600));
+        }
+        from = Instant.ofEpochSecond(now - 1_800).plusMillis(500);
+        to = Instant.ofEpochSecond(now - 60);
+    }
+
+    @Benchmark
+    public PaymentSummaryResponseDTO summary() {
+        return aggregator.summary(from, to);
+    }
+
+    @Benchmark
+    public void record() {
+        aggregator.record(true, 1990, now);
+    }
+}
@@ -0,0 +1,78 @@
+package com.jpdev01.rinha.benchmark.sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Chegadas de pagamentos em tempo virtual, lidas uma a uma (um dia de tráfego não fica em memória).
+ * Sintético: Poisson com taxa fixa. Gravado: arquivo com "offsetMillis[,amount]" por linha,
+ * offsets crescentes desde o início, amount em reais; linhas com # são ignoradas.
+ */
+final class ArrivalTrace implements AutoCloseable {
+
+    private final BufferedReader reader;
+    private final Random random;
+    private final double meanIntervalMicros;
+    private final long endMicros;
+    private final long defaultAmountCents;
+
+    private long timeMicros;
+    private long amountCents;
+
+    private ArrivalTrace(BufferedReader reader, Random random, double meanIntervalMicros, long endMicros, long defaultAmountCents) {
+        this.reader = reader;
+        this.random = random;
+        this.meanIntervalMicros = meanIntervalMicros;
+        this.endMicros = endMicros;
+        this.defaultAmountCents = defaultAmountCents;
+    }
+
+    static ArrivalTrace poisson(double ratePerSecond, long durationSeconds, long amountCents, long seed) {
+        return new ArrivalTrace(null, new Random(seed), 1_000_000 / ratePerSecond, durationSeconds * 1_000_000, amountCents);
+    }
+
+    static ArrivalTrace recorded(Path path, long defaultAmountCents) throws IOException {
+        return new ArrivalTrace(Files.newBufferedReader(path), null, 0, Long.MAX_VALUE, defaultAmountCents);
+    }
+
+    // false no fim do trace
+    boolean advance() {
+        if (reader == null) {
+            timeMicros += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalMicros);
+            amountCents = defaultAmountCents;
+            return timeMicros < endMicros;
+        }
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) return false;
+                line = line.trim();
+            } while (line.isEmpty() || line.startsWith("#"));
+
+            int comma = line.indexOf(',');
+            timeMicros = Long.parseLong(comma < 0 ? line : line.substring(0, comma).trim()) * 1000;
+            amountCents = comma < 0 ? defaultAmountCents : Math.round(Double.parseDouble(line.substring(comma + 1).trim()) * 100);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long timeMicros() {
+        return timeMicros;
+    }
+
+    long amountCents() {
+        return amountCents;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) reader.close();
+    }
+}
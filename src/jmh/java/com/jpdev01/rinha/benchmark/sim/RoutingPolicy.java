@@ -0,0 +1,169 @@
+package com.jpdev01.rinha.benchmark.sim;
+
+import com.jpdev01.rinha.state.LatencyEstimator;
+import com.jpdev01.rinha.state.Processor;
+
+/**
+ * Regra de despacho avaliada pelo {@link RoutingSimulator}: para onde vai cada pagamento, quando
+ * chamar o /service-health e quantas tentativas cada pagamento tem antes de ser abandonado.
+ * Na linha de comando: nome[@tentativas], ex.: fee-aware@10 (sem @, tentativas ilimitadas).
+ * <ul>
+ *     <li>default-first: o runWorker antigo, default se saudável, senão fallback; o health check
+ *     é pulado enquanto o default está saudável com minResponseTime &lt;= 10 (checkHealth)</li>
+ *     <li>always-poll: a mesma escolha, com health check a cada rodada</li>
+ *     <li>default-only: nunca usa o fallback; sem default saudável o pagamento volta para retry</li>
+ *     <li>fee-aware: o {@link com.jpdev01.rinha.service.ProcessorRouter}, custo esperado de cada
+ *     processador ponderado pela razão das taxas, com circuit breaker por taxa de falha</li>
+ * </ul>
+ */
+interface RoutingPolicy {
+
+    // o que a aplicação sabe dos processadores no instante atual
+    interface View {
+
+        long nowMicros();
+
+        boolean healthy(Processor processor);
+
+        int minResponseTime(Processor processor);
+
+        LatencyEstimator.Estimate estimate(Processor processor);
+    }
+
+    String name();
+
+    // null quando nenhum processador serve agora: o pagamento vai para retry
+    Processor choose(View view);
+
+    boolean wantsHealthCheck(View view, Processor processor);
+
+    default void onResult(View view, Processor processor, boolean success) {
+    }
+
+    // 0 é sem limite
+    int maxAttempts();
+
+    static RoutingPolicy parse(String spec) {
+        int at = spec.indexOf('@');
+        String name = at < 0 ? spec : spec.substring(0, at);
+        int maxAttempts = at < 0 ? 0 : Integer.parseInt(spec.substring(at + 1));
+        return switch (name) {
+            case "default-first" -> new DefaultFirst(spec, maxAttempts, false);
+            case "always-poll" -> new DefaultFirst(spec, maxAttempts, true);
+            case "default-only" -> new DefaultOnly(spec, maxAttempts);
+            case "fee-aware" -> new FeeAware(spec, maxAttempts);
+            default -> throw new IllegalArgumentException("Unknown routing policy: " + spec);
+        };
+    }
+
+    private static boolean skipsHealthCheck(View view, Processor processor) {
+        return view.healthy(processor) && view.minResponseTime(processor) <= 10;
+    }
+
+    record DefaultFirst(String name, int maxAttempts, boolean alwaysPoll) implements RoutingPolicy {
+
+        @Override
+        public Processor choose(View view) {
+            if (view.healthy(Processor.DEFAULT)) return Processor.DEFAULT;
+            if (view.healthy(Processor.FALLBACK)) return Processor.FALLBACK;
+            return null;
+        }
+
+        @Override
+        public boolean wantsHealthCheck(View view, Processor processor) {
+            return alwaysPoll || !skipsHealthCheck(view, processor);
+        }
+    }
+
+    record DefaultOnly(String name, int maxAttempts) implements RoutingPolicy {
+
+        @Override
+        public Processor choose(View view) {
+            return view.healthy(Processor.DEFAULT) ? Processor.DEFAULT : null;
+        }
+
+        @Override
+        public boolean wantsHealthCheck(View view, Processor processor) {
+            return processor == Processor.DEFAULT && !skipsHealthCheck(view, processor);
+        }
+    }
+
+    // mesmas constantes do ProcessorRouter; o breaker é só a parte de taxa de falha do CircuitBreaker
+    final class FeeAware implements RoutingPolicy {
+
+        private static final double FEE_RATIO = 0.15 / 0.05;
+        private static final double LATENCY_SLACK_MILLIS = 20;
+        private static final double TAIL_WEIGHT = 0.3;
+        private static final int WINDOW_SIZE = 50;
+        private static final int MINIMUM_CALLS = 20;
+        private static final double FAILURE_RATE_THRESHOLD = 0.5;
+        private static final long OPEN_WAIT_MICROS = 1_000_000;
+
+        private final String name;
+        private final int maxAttempts;
+        private final boolean[][] windows = new boolean[2][WINDOW_SIZE];
+        private final int[] calls = new int[2];
+        private final int[] failures = new int[2];
+        private final long[] openedAt = {Long.MIN_VALUE / 2, Long.MIN_VALUE / 2};
+
+        FeeAware(String name, int maxAttempts) {
+            this.name = name;
+            this.maxAttempts = maxAttempts;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int maxAttempts() {
+            return maxAttempts;
+        }
+
+        @Override
+        public Processor choose(View view) {
+            boolean defaultAvailable = available(view, Processor.DEFAULT);
+            boolean fallbackAvailable = available(view, Processor.FALLBACK);
+            if (!defaultAvailable && !fallbackAvailable) return null;
+            if (!fallbackAvailable) return Processor.DEFAULT;
+            if (!defaultAvailable) return Processor.FALLBACK;
+            return expectedMillis(view, Processor.DEFAULT) <= expectedMillis(view, Processor.FALLBACK) * FEE_RATIO + LATENCY_SLACK_MILLIS
+                    ? Processor.DEFAULT
+                    : Processor.FALLBACK;
+        }
+
+        @Override
+        public boolean wantsHealthCheck(View view, Processor processor) {
+            return true;
+        }
+
+        @Override
+        public void onResult(View view, Processor processor, boolean success) {
+            int p = processor.ordinal();
+            int slot = calls[p]++ % WINDOW_SIZE;
+            if (calls[p] > WINDOW_SIZE && windows[p][slot]) failures[p]--;
+            windows[p][slot] = !success;
+            if (!success) failures[p]++;
+
+            int window = Math.min(calls[p], WINDOW_SIZE);
+            if (window >= MINIMUM_CALLS && failures[p] >= window * FAILURE_RATE_THRESHOLD) {
+                openedAt[p] = view.nowMicros();
+                calls[p] = 0;
+                failures[p] = 0;
+            }
+        }
+
+        private boolean available(View view, Processor processor) {
+            return view.healthy(processor) && view.nowMicros() - openedAt[processor.ordinal()] >= OPEN_WAIT_MICROS;
+        }
+
+        private static double expectedMillis(View view, Processor processor) {
+            LatencyEstimator.Estimate estimate = view.estimate(processor);
+            int minResponseTime = view.minResponseTime(processor);
+            if (estimate.samples() == 0) return minResponseTime;
+            double observed = (1 - TAIL_WEIGHT) * estimate.ewmaMillis() + TAIL_WEIGHT * estimate.p99Millis();
+            return Math.max(observed, minResponseTime);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.jpdev01.rinha.benchmark.sim;
+
+import com.jpdev01.rinha.benchmark.stub.StubProcessor.FailureWindow;
+import com.jpdev01.rinha.metrics.LatencyHistogram;
+import com.jpdev01.rinha.state.LatencyEstimator;
+import com.jpdev01.rinha.state.Processor;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Simulador de eventos discretos do despacho de pagamentos, em relógio virtual: compara regras de
+ * roteamento ({@link RoutingPolicy}) sem subir a aplicação nem os processadores. Reproduz o que o
+ * PaymentAsyncService faz (fila, limite de chamadas em voo por processador, retry com backoff
+ * exponencial, health check a cada 2s com o rate limit de 5s) contra dois {@link SimulatedProcessor}.
+ * Cada regra roda o mesmo trace com as mesmas sementes; um dia de tráfego leva segundos.
+ * <p>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.jpdev01.rinha.benchmark.sim.RoutingSimulator \
+ * -Djmh.args="--rate=250 --duration=86400 --default-flap=600000:30000"
+ * <p>
+ * Opções: --policies (default-first,always-poll,default-only,fee-aware; nome@tentativas limita
+ * as tentativas), --rate (pagamentos/s), --duration (s), --trace (arquivo "offsetMillis[,amount]",
+ * no lugar do Poisson), --amount, --default-latency e --fallback-latency (fixed:10, uniform:5:50,
+ * lognormal:10:0.5), --default-failures e --fallback-failures (janelas em ms, 5000-8000,15000-16000),
+ * --default-flap e --fallback-flap (periodoMs:foraMs), --lost-response-ratio, --timeout-ms,
+ * --pool-size, --drain (s) e --seed.
+ */
+public class RoutingSimulator {
+
+    private static final double DEFAULT_FEE = 0.05;
+    private static final double FALLBACK_FEE = 0.15;
+    private static final long HEALTH_TICK_MICROS = 2_000_000;
+    private static final long HEALTH_RATE_LIMIT_MICROS = 5_000_000;
+    private static final long BASE_BACKOFF_MILLIS = 20;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+
+    private static final int ARRIVAL = 0;
+    private static final int RESPONSE = 1;
+    private static final int RETRY_DUE = 2;
+    private static final int HEALTH_TICK = 3;
+
+    private final Map<String, String> options;
+
+    private RoutingSimulator(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new RoutingSimulator(options).run();
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private void run() throws Exception {
+        System.out.printf(Locale.ROOT, "%-18s %12s %10s %10s %10s %14s %8s %8s %8s %8s %10s%n",
+                "policy", "confirmed", "req/s", "p50 lag", "p99 lag", "profit", "fallback", "incons", "double", "pending", "health");
+        for (String spec : option("policies", "default-first,always-poll,default-only,fee-aware").split(",")) {
+            long start = System.nanoTime();
+            Result result = new Run(RoutingPolicy.parse(spec.trim())).execute();
+            report(result, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private ArrivalTrace trace() throws Exception {
+        long amountCents = Math.round(Double.parseDouble(option("amount", "19.90")) * 100);
+        String path = option("trace", "");
+        if (!path.isBlank()) return ArrivalTrace.recorded(Path.of(path), amountCents);
+        return ArrivalTrace.poisson(Double.parseDouble(option("rate", "250")), Long.parseLong(option("duration", "3600")),
+                amountCents, seed());
+    }
+
+    private SimulatedProcessor processor(String name, double fee, String defaultLatency, long seed) {
+        String[] flap = option(name + "-flap", "0:0").split(":");
+        return new SimulatedProcessor(name, fee,
+                option(name + "-latency", defaultLatency),
+                FailureWindow.parseAll(option(name + "-failures", "")),
+                Long.parseLong(flap[0]), Long.parseLong(flap[1]),
+                Double.parseDouble(option("lost-response-ratio", "0")),
+                seed);
+    }
+
+    private long seed() {
+        return Long.parseLong(option("seed", "42"));
+    }
+
+    private record Result(String policy, long confirmed, long[] confirmedByProcessor,
+                          long pending, long abandoned, long spanMicros,
+                          LatencyHistogram.Snapshot lag, SimulatedProcessor[] processors) {
+    }
+
+    private static void report(Result result, long wallMillis) {
+        double profit = 0;
+        long inconsistencies = 0;
+        long healthCalls = 0;
+        for (int p = 0; p < 2; p++) {
+            SimulatedProcessor processor = result.processors()[p];
+            profit += processor.acceptedAmountCents * (1 - processor.fee) / 100;
+            // o que a API soma contra o que o processador cobrou
+            inconsistencies += Math.abs(processor.accepted - result.confirmedByProcessor()[p]);
+            healthCalls += processor.healthCalls;
+        }
+        double seconds = result.spanMicros() / 1e6;
+        System.out.printf(Locale.ROOT, "%-18s %12d %10.1f %8.1fms %8.1fms %14.2f %7.1f%% %8d %8d %8d %10d  (%d ms)%n",
+                result.policy(),
+                result.confirmed(),
+                result.confirmed() / Math.max(seconds, 1e-9),
+                result.lag().quantileNanos(0.50) / 1e6,
+                result.lag().quantileNanos(0.99) / 1e6,
+                profit,
+                result.confirmed() == 0 ? 0 : 100.0 * result.confirmedByProcessor()[1] / result.confirmed(),
+                inconsistencies,
+                result.processors()[0].overlap(result.processors()[1]),
+                result.pending() + result.abandoned(),
+                healthCalls,
+                wallMillis);
+    }
+
+    private static final class Payment {
+        final int id;
+        final long amountCents;
+        final long arrivalMicros;
+        int attempts;
+        boolean confirmed;
+
+        Payment(int id, long amountCents, long arrivalMicros) {
+            this.id = id;
+            this.amountCents = amountCents;
+            this.arrivalMicros = arrivalMicros;
+        }
+    }
+
+    private record Event(long timeMicros, long sequence, int type, Payment payment, Processor processor,
+                         long latencyMicros, boolean success) implements Comparable<Event> {
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(timeMicros, other.timeMicros);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // uma execução de uma regra: estado da aplicação simulada mais os dois processadores
+    private final class Run implements RoutingPolicy.View {
+
+        private final RoutingPolicy policy;
+        private final SimulatedProcessor[] processors;
+        private final Random random = new Random(seed());
+        private final long timeoutMicros = Long.parseLong(option("timeout-ms", "20000")) * 1000;
+        private final int poolSize = Integer.parseInt(option("pool-size", "32"));
+        private final long drainMicros = Long.parseLong(option("drain", "60")) * 1_000_000;
+
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+        private final ArrayDeque<Payment> ready = new ArrayDeque<>();
+        private final LatencyEstimator[] estimators = {new LatencyEstimator(), new LatencyEstimator()};
+        private final LatencyHistogram lag = new LatencyHistogram();
+        private final boolean[] healthy = new boolean[2];
+        private final int[] minResponseTime = new int[2];
+        private final long[] lastHealthCheck = {Long.MIN_VALUE / 2, Long.MIN_VALUE / 2};
+        private final int[] inFlight = new int[2];
+        private final long[] confirmedByProcessor = new long[2];
+
+        private long now;
+        private long sequence;
+        private int arrivals;
+        private long confirmed;
+        private long abandoned;
+        private long unfinished;
+        private long lastArrival;
+
+        Run(RoutingPolicy policy) {
+            this.policy = policy;
+            long seed = seed();
+            this.processors = new SimulatedProcessor[]{
+                    processor("default", DEFAULT_FEE, "lognormal:10:0.5", seed + 1),
+                    processor("fallback", FALLBACK_FEE, "lognormal:20:0.5", seed + 2)
+            };
+        }
+
+        Result execute() throws Exception {
+            try (ArrivalTrace trace = trace()) {
+                if (trace.advance()) schedule(trace.timeMicros(), ARRIVAL, null, null, 0, false);
+                schedule(0, HEALTH_TICK, null, null, 0, false);
+
+                long stopAt = Long.MAX_VALUE;
+                while (!events.isEmpty()) {
+                    Event event = events.poll();
+                    if (event.timeMicros() > stopAt) break;
+                    now = event.timeMicros();
+                    switch (event.type()) {
+                        case ARRIVAL -> {
+                            ready.addLast(new Payment(arrivals++, trace.amountCents(), now));
+                            lastArrival = now;
+                            if (trace.advance()) {
+                                schedule(trace.timeMicros(), ARRIVAL, null, null, 0, false);
+                            } else {
+                                stopAt = now + drainMicros;
+                            }
+                        }
+                        case RESPONSE -> onResponse(event);
+                        case RETRY_DUE -> {
+                            if (!event.payment().confirmed) ready.addLast(event.payment());
+                        }
+                        case HEALTH_TICK -> {
+                            checkHealth(Processor.DEFAULT);
+                            checkHealth(Processor.FALLBACK);
+                            // o tick só se mantém enquanto há algo pendente, senão o loop não termina
+                            if (stopAt == Long.MAX_VALUE || !events.isEmpty() || !ready.isEmpty()) {
+                                schedule(now + HEALTH_TICK_MICROS, HEALTH_TICK, null, null, 0, false);
+                            }
+                        }
+                        default -> throw new IllegalStateException("Unknown event " + event.type());
+                    }
+                    dispatch();
+                }
+            }
+
+            for (Event event : events) {
+                if (event.payment() != null && !event.payment().confirmed) unfinished++;
+            }
+            for (Payment payment : ready) {
+                if (!payment.confirmed) unfinished++;
+            }
+            return new Result(policy.name(), confirmed, confirmedByProcessor, unfinished, abandoned, Math.max(lastArrival, 1), lag.snapshot(), processors);
+        }
+
+        // workers do PaymentAsyncService: o primeiro da fila espera vaga no processador escolhido
+        private void dispatch() {
+            while (!ready.isEmpty()) {
+                Payment payment = ready.peekFirst();
+                if (payment.confirmed) {
+                    ready.pollFirst();
+                    continue;
+                }
+                Processor processor = policy.choose(this);
+                if (processor == null) {
+                    ready.pollFirst();
+                    retry(payment);
+                    continue;
+                }
+                int p = processor.ordinal();
+                if (inFlight[p] >= poolSize) return;
+
+                ready.pollFirst();
+                inFlight[p]++;
+                SimulatedProcessor.Response response = processors[p].pay(payment.id, payment.amountCents, now);
+                boolean timedOut = response.latencyMicros() > timeoutMicros;
+                boolean success = !timedOut && response.result() != SimulatedProcessor.Result.FAILED;
+                long observed = Math.min(response.latencyMicros(), timeoutMicros);
+                schedule(now + observed, RESPONSE, payment, processor, observed, success);
+            }
+        }
+
+        private void onResponse(Event event) {
+            Processor processor = event.processor();
+            int p = processor.ordinal();
+            inFlight[p]--;
+            estimators[p].record(event.latencyMicros() * 1000);
+            policy.onResult(this, processor, event.success());
+
+            Payment payment = event.payment();
+            if (event.success()) {
+                // 200 ou 422: só a primeira confirmação conta no resumo da API
+                if (!payment.confirmed) {
+                    payment.confirmed = true;
+                    confirmed++;
+                    confirmedByProcessor[p]++;
+                    lag.record((now - payment.arrivalMicros) * 1000);
+                }
+                return;
+            }
+            if (!payment.confirmed) retry(payment);
+        }
+
+        private void retry(Payment payment) {
+            payment.attempts++;
+            if (policy.maxAttempts() > 0 && payment.attempts >= policy.maxAttempts()) {
+                abandoned++;
+                return;
+            }
+            schedule(now + backoffMillis(payment.attempts) * 1000, RETRY_DUE, payment, null, 0, false);
+        }
+
+        // o backoff do RetryScheduler: exponencial com "equal jitter"
+        private long backoffMillis(int attempt) {
+            long exp = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+            long half = exp / 2;
+            return half + random.nextLong(half + 1);
+        }
+
+        // checkHealth do PaymentHealthCheckService: regra da política, rate limit local e 429 do processador
+        private void checkHealth(Processor processor) {
+            int p = processor.ordinal();
+            if (!policy.wantsHealthCheck(this, processor)) return;
+            if (now - lastHealthCheck[p] <= HEALTH_RATE_LIMIT_MICROS) return;
+            lastHealthCheck[p] = now;
+
+            SimulatedProcessor.Health health = processors[p].health(now);
+            if (health == null) return;
+            healthy[p] = !health.failing();
+            minResponseTime[p] = health.minResponseTime();
+        }
+
+        private void schedule(long timeMicros, int type, Payment payment, Processor processor, long latencyMicros, boolean success) {
+            events.add(new Event(timeMicros, sequence++, type, payment, processor, latencyMicros, success));
+        }
+
+        @Override
+        public long nowMicros() {
+            return now;
+        }
+
+        @Override
+        public boolean healthy(Processor processor) {
+            return healthy[processor.ordinal()];
+        }
+
+        @Override
+        public int minResponseTime(Processor processor) {
+            return minResponseTime[processor.ordinal()];
+        }
+
+        @Override
+        public LatencyEstimator.Estimate estimate(Processor processor) {
+            return estimators[processor.ordinal()].estimate();
+        }
+    }
+}
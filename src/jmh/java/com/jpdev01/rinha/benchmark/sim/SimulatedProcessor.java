@@ -0,0 +1,121 @@
+package com.jpdev01.rinha.benchmark.sim;
+
+import com.jpdev01.rinha.benchmark.stub.LatencyDistribution;
+import com.jpdev01.rinha.benchmark.stub.StubProcessor.FailureWindow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Payment-processor em tempo virtual, com o mesmo comportamento do {@link com.jpdev01.rinha.benchmark.stub.StubProcessor}:
+ * latência sorteada, 500 dentro das janelas de falha, resposta perdida (grava e devolve 500, o
+ * retry recebe 422), dedup por correlationId e /service-health limitado a uma chamada a cada 5s.
+ * A taxa de cada pagamento aceito entra no lucro do relatório.
+ */
+final class SimulatedProcessor {
+
+    enum Result {
+        OK,
+        DUPLICATE,
+        FAILED
+    }
+
+    record Response(long latencyMicros, Result result) {
+    }
+
+    record Health(boolean failing, int minResponseTime) {
+    }
+
+    static final long HEALTH_INTERVAL_MICROS = 5_000_000;
+
+    final String name;
+    final double fee;
+    private final LatencyDistribution latency;
+    private final List<FailureWindow> failureWindows;
+    // falha periódica para traces longos: fica fora do ar nos últimos flapDownMillis de cada período
+    private final long flapPeriodMillis;
+    private final long flapDownMillis;
+    private final double lostResponseRatio;
+    private final Random random;
+    private final int minResponseTime;
+
+    // pagamentos por índice no trace: um dia inteiro cabe em poucos MB
+    private final BitSet seen = new BitSet();
+    long accepted;
+    long acceptedAmountCents;
+    long failures;
+    long lostResponses;
+    long healthCalls;
+    long healthThrottled;
+    private long lastHealthMicros = Long.MIN_VALUE / 2;
+
+    SimulatedProcessor(String name, double fee, String latencySpec, List<FailureWindow> failureWindows,
+                       long flapPeriodMillis, long flapDownMillis, double lostResponseRatio, long seed) {
+        this.name = name;
+        this.fee = fee;
+        this.random = new Random(seed);
+        this.latency = LatencyDistribution.parse(latencySpec, random);
+        this.failureWindows = failureWindows;
+        this.flapPeriodMillis = flapPeriodMillis;
+        this.flapDownMillis = flapDownMillis;
+        this.lostResponseRatio = lostResponseRatio;
+        this.minResponseTime = lowPercentile(LatencyDistribution.parse(latencySpec, new Random(seed ^ 0x5DEECE66DL)));
+    }
+
+    boolean failing(long nowMicros) {
+        long millis = nowMicros / 1000;
+        if (flapPeriodMillis > 0 && millis % flapPeriodMillis >= flapPeriodMillis - flapDownMillis) return true;
+        for (FailureWindow window : failureWindows) {
+            if (millis >= window.fromMillis() && millis < window.toMillis()) return true;
+        }
+        return false;
+    }
+
+    Response pay(int payment, long amountCents, long nowMicros) {
+        long latencyMicros = Math.max(0, latency.nextMillis()) * 1000;
+        if (failing(nowMicros)) {
+            failures++;
+            return new Response(latencyMicros, Result.FAILED);
+        }
+        if (seen.get(payment)) return new Response(latencyMicros, Result.DUPLICATE);
+
+        seen.set(payment);
+        accepted++;
+        acceptedAmountCents += amountCents;
+        if (lostResponseRatio > 0 && random.nextDouble() < lostResponseRatio) {
+            lostResponses++;
+            return new Response(latencyMicros, Result.FAILED);
+        }
+        return new Response(latencyMicros, Result.OK);
+    }
+
+    // null é o 429: chamada antes de passar o intervalo mínimo
+    Health health(long nowMicros) {
+        healthCalls++;
+        if (nowMicros - lastHealthMicros < HEALTH_INTERVAL_MICROS) {
+            healthThrottled++;
+            return null;
+        }
+        lastHealthMicros = nowMicros;
+        return new Health(failing(nowMicros), minResponseTime);
+    }
+
+    // pagamentos cobrados pelos dois processadores (timeout ou resposta perdida seguido de troca)
+    long overlap(SimulatedProcessor other) {
+        BitSet both = (BitSet) seen.clone();
+        both.and(other.seen);
+        return both.cardinality();
+    }
+
+    // o minResponseTime do /service-health: p5 da distribuição de latência
+    private static int lowPercentile(LatencyDistribution distribution) {
+        long[] samples = new long[1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = distribution.nextMillis();
+        }
+        Arrays.sort(samples);
+        return (int) Math.max(0, samples[samples.length / 20]);
+    }
+}
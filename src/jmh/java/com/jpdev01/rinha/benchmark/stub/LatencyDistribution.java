@@ -0,0 +1,56 @@
+package com.jpdev01.rinha.benchmark.stub;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Latência simulada de um processador, em milissegundos.
+ * Formato texto para a linha de comando: fixed:10, uniform:5:50, lognormal:10:0.5 (mediana, sigma).
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    long nextMillis();
+
+    static LatencyDistribution fixed(long millis) {
+        return () -> millis;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return uniform(minMillis, maxMillis, threadLocal());
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis, RandomGenerator random) {
+        return () -> random.nextLong(minMillis, maxMillis + 1);
+    }
+
+    // cauda longa, parecida com a dos processadores reais sob carga
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        return logNormal(medianMillis, sigma, threadLocal());
+    }
+
+    static LatencyDistribution logNormal(double medianMillis, double sigma, RandomGenerator random) {
+        double mu = Math.log(medianMillis);
+        return () -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    static LatencyDistribution parse(String spec) {
+        return parse(spec, threadLocal());
+    }
+
+    // com um Random com semente as execuções do simulador são reproduzíveis
+    static LatencyDistribution parse(String spec, RandomGenerator random) {
+        String[] parts = spec.split(":");
+        return switch (parts[0]) {
+            case "fixed" -> fixed(Long.parseLong(parts[1]));
+            case "uniform" -> uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]), random);
+            case "lognormal" -> logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), random);
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        };
+    }
+
+    // cada chamada vai ao ThreadLocalRandom da thread atual; os métodos default partem do nextLong
+    private static RandomGenerator threadLocal() {
+        return () -> ThreadLocalRandom.current().nextLong();
+    }
+}
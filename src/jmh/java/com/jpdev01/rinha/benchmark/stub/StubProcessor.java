@@ -0,0 +1,207 @@
+package com.jpdev01.rinha.benchmark.stub;
+
+import com.jpdev01.rinha.codec.PaymentCodec;
+import com.jpdev01.rinha.entity.Payment;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Processador de pagamentos em processo (JDK HttpServer) com o mesmo contrato do container real:
+ * POST /payments e GET /payments/service-health. Latência, janelas de falha, respostas perdidas
+ * e o rate limit do health são configuráveis; os contadores próprios servem de referência
+ * para conferir o /payments-summary da API.
+ */
+public class StubProcessor implements AutoCloseable {
+
+    // janela de falha em ms desde o início do cenário: POST devolve 500 e o health diz failing
+    public record FailureWindow(long fromMillis, long toMillis) {
+
+        boolean contains(long elapsedMillis) {
+            return elapsedMillis >= fromMillis && elapsedMillis < toMillis;
+        }
+
+        // "5000-8000,15000-16000"
+        public static List<FailureWindow> parseAll(String spec) {
+            if (spec == null || spec.isBlank()) return List.of();
+            return Arrays.stream(spec.split(","))
+                    .map(window -> window.split("-"))
+                    .map(bounds -> new FailureWindow(Long.parseLong(bounds[0].trim()), Long.parseLong(bounds[1].trim())))
+                    .toList();
+        }
+    }
+
+    public record Counters(long accepted, long acceptedAmountCents, long duplicates, long failures,
+                           long lostResponses, long healthCalls, long healthThrottled) {
+    }
+
+    private static final long HEALTH_INTERVAL_MILLIS = 5_000;
+
+    private final String name;
+    private final LatencyDistribution latency;
+    private final List<FailureWindow> failureWindows;
+    private final double lostResponseRatio;
+
+    private final Set<UUID> seen = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong acceptedAmountCents = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lostResponses = new AtomicLong();
+    private final AtomicLong healthCalls = new AtomicLong();
+    private final AtomicLong healthThrottled = new AtomicLong();
+    private final AtomicLong lastHealthMillis = new AtomicLong(Long.MIN_VALUE / 2);
+
+    private volatile Consumer<UUID> onAccepted = id -> {
+    };
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private long startedAtMillis;
+
+    /**
+     * @param lostResponseRatio fração dos pagamentos gravados cuja resposta volta como 500;
+     *                          o retry da API então recebe 422 (duplicado)
+     */
+    public StubProcessor(String name, LatencyDistribution latency, List<FailureWindow> failureWindows, double lostResponseRatio) {
+        this.name = name;
+        this.latency = latency;
+        this.failureWindows = failureWindows;
+        this.lostResponseRatio = lostResponseRatio;
+    }
+
+    public StubProcessor start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/payments/service-health", this::health);
+        server.createContext("/payments", this::payments);
+        startedAtMillis = System.currentTimeMillis();
+        server.start();
+        return this;
+    }
+
+    // zera o relógio das janelas de falha, para contarem a partir do início da carga
+    public void beginScenario() {
+        startedAtMillis = System.currentTimeMillis();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void onAccepted(Consumer<UUID> listener) {
+        this.onAccepted = listener;
+    }
+
+    public Counters counters() {
+        return new Counters(accepted.get(), acceptedAmountCents.get(), duplicates.get(), failures.get(),
+                lostResponses.get(), healthCalls.get(), healthThrottled.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private boolean failing() {
+        long elapsed = System.currentTimeMillis() - startedAtMillis;
+        for (FailureWindow window : failureWindows) {
+            if (window.contains(elapsed)) return true;
+        }
+        return false;
+    }
+
+    private void payments(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Payment payment;
+            try (InputStream body = exchange.getRequestBody()) {
+                payment = PaymentCodec.parse(body.readAllBytes());
+            } catch (IllegalArgumentException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            sleep(latency.nextMillis());
+
+            if (failing()) {
+                failures.incrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            UUID correlationId = payment.correlationId();
+            if (!seen.add(correlationId)) {
+                duplicates.incrementAndGet();
+                exchange.sendResponseHeaders(422, -1);
+                return;
+            }
+            accepted.incrementAndGet();
+            acceptedAmountCents.addAndGet(payment.amountCents());
+            onAccepted.accept(correlationId);
+
+            if (lostResponseRatio > 0 && ThreadLocalRandom.current().nextDouble() < lostResponseRatio) {
+                lostResponses.incrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            respond(exchange, 200, "{\"message\":\"payment processed successfully\"}");
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            healthCalls.incrementAndGet();
+            long now = System.currentTimeMillis();
+            long last = lastHealthMillis.get();
+            // mesmo limite do processador real: uma chamada a cada 5 segundos
+            if (now - last < HEALTH_INTERVAL_MILLIS || !lastHealthMillis.compareAndSet(last, now)) {
+                healthThrottled.incrementAndGet();
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            long minResponseTime = latency.nextMillis();
+            respond(exchange, 200, "{\"failing\":" + failing() + ",\"minResponseTime\":" + minResponseTime + "}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,10 +1,6 @@
 package com.jpdev01.rinha;
 
-import java.math.BigDecimal;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 
 public class Utils {
 
@@ -13,24 +9,14 @@ public class Utils {
         return durationMs > 10;
     }
 
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
-
-    public static String toJson(String correlationId, BigDecimal amount, Instant requestedAt) {
-        return """
-                {"correlationId":"%s","amount":%s,"requestedAt":"%s"}
-                """.formatted(
-                escape(correlationId),
-                amount != null ? amount.toPlainString() : "null",
-                requestedAt != null ? requestedAt.atOffset(ZoneOffset.UTC).format(DATE_FORMATTER) : "null"
-        );
+    // requestedAt é guardado em segundos: o intervalo [from, to] vira [ceil(from), floor(to)]
+    public static long fromSecond(Instant from) {
+        if (from == null) return 0;
+        return from.getEpochSecond() + (from.getNano() > 0 ? 1 : 0);
     }
 
-    private static String escape(String value) {
-        if (value == null) return "";
-        return value.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    public static long toSecond(Instant to) {
+        if (to == null) return Long.MAX_VALUE;
+        return to.getEpochSecond();
     }
 }
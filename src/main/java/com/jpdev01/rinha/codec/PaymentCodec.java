@@ -0,0 +1,296 @@
+package com.jpdev01.rinha.codec;
+
+import com.jpdev01.rinha.entity.Payment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Codec em bytes para o formato fixo dos pagamentos, sem passar por Jackson nem por String.format.
+ * Entrada: {"correlationId":"...","amount":19.90} lido direto do buffer da requisição.
+ * O correlationId vai direto para dois longs e o amount para centavos; amount que não cabe exato em
+ * centavos (casa além da segunda diferente de zero, expoente) é rejeitado em vez de arredondado.
+ * Saída: template pré-codificado + bytes do timestamp, que ficam em cache por segundo. O tamanho sai
+ * de {@link #encodedLength} antes de codificar, então o corpo vai direto para o array da requisição.
+ */
+public final class PaymentCodec {
+
+    public static final int MAX_ENCODED_LENGTH = 256;
+    private static final int UUID_LENGTH = 36;
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static final byte[] CORRELATION_ID_KEY = ascii("correlationId");
+    private static final byte[] AMOUNT_KEY = ascii("amount");
+    // acima disso units * 100 estoura o long
+    private static final long MAX_UNITS = Long.MAX_VALUE / 100 - 1;
+
+    private static final byte[] PREFIX = ascii("{\"correlationId\":\"");
+    private static final byte[] AMOUNT_FIELD = ascii("\",\"amount\":");
+    private static final byte[] REQUESTED_AT_FIELD = ascii(",\"requestedAt\":\"");
+    private static final byte[] SUFFIX = ascii("\"}");
+
+    private record Second(long epochSecond, byte[] iso) {
+    }
+
+    private static volatile Second currentSecond = second(Instant.now().getEpochSecond());
+
+    private PaymentCodec() {
+    }
+
+    // requestedAt do pagamento: o segundo do recebimento
+    public static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    public static Payment parse(byte[] body) {
+        return parse(body, 0, body.length);
+    }
+
+    public static Payment parse(byte[] body, int offset, int length) {
+        boolean hasCorrelationId = false;
+        long msb = 0;
+        long lsb = 0;
+        long amountCents = -1;
+
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (body[i] != '"') {
+                i++;
+                continue;
+            }
+            int keyStart = i + 1;
+            int keyEnd = indexOf(body, (byte) '"', keyStart, end);
+            int valueStart = skipWhitespace(body, indexOf(body, (byte) ':', keyEnd + 1, end) + 1, end);
+            if (valueStart >= end) throw new IllegalArgumentException("Malformed payment body");
+
+            if (equals(body, keyStart, keyEnd, CORRELATION_ID_KEY)) {
+                if (body[valueStart] != '"') throw invalid("correlationId");
+                int valueEnd = indexOf(body, (byte) '"', valueStart + 1, end);
+                int uuid = valueStart + 1;
+                if (valueEnd - uuid != UUID_LENGTH
+                        || body[uuid + 8] != '-' || body[uuid + 13] != '-' || body[uuid + 18] != '-' || body[uuid + 23] != '-') {
+                    throw invalid("correlationId");
+                }
+                msb = hex(body, uuid, 8) << 32 | hex(body, uuid + 9, 4) << 16 | hex(body, uuid + 14, 4);
+                lsb = hex(body, uuid + 19, 4) << 48 | hex(body, uuid + 24, 12);
+                hasCorrelationId = true;
+                i = valueEnd + 1;
+            } else if (equals(body, keyStart, keyEnd, AMOUNT_KEY)) {
+                i = valueStart;
+                long units = 0;
+                long cents = 0;
+                int decimals = -1;
+                for (; i < end; i++) {
+                    byte b = body[i];
+                    if (b >= '0' && b <= '9') {
+                        if (decimals < 0) {
+                            units = units * 10 + (b - '0');
+                            if (units > MAX_UNITS) throw invalid("amount");
+                        } else if (decimals < 2) {
+                            cents = cents * 10 + (b - '0');
+                            decimals++;
+                        } else if (b != '0') {
+                            // 1.999 não é um valor em centavos; zeros à direita (1.990) não mudam nada
+                            throw invalid("amount");
+                        }
+                    } else if (b == '.' && decimals < 0) {
+                        decimals = 0;
+                    } else {
+                        break;
+                    }
+                }
+                // sem dígito, "1." ou seguido de expoente (1e3) ou lixo: o número não terminou onde devia
+                if (i == valueStart || decimals == 0 || (i < end && !endsValue(body[i]))) throw invalid("amount");
+                if (decimals == 1) cents *= 10;
+                amountCents = units * 100 + cents;
+            } else {
+                // campo desconhecido: pula o valor inteiro, senão uma string ou objeto aninhado vira chave
+                i = skipValue(body, valueStart, end);
+            }
+        }
+
+        if (!hasCorrelationId || amountCents < 0) throw invalid(hasCorrelationId ? "amount" : "correlationId");
+        return new Payment(msb, lsb, amountCents, now());
+    }
+
+    public static int encodedLength(Payment payment) {
+        return PREFIX.length + UUID_LENGTH + AMOUNT_FIELD.length + digits(payment.amountCents() / 100) + 3
+                + REQUESTED_AT_FIELD.length + iso(payment.requestedAt()).length + SUFFIX.length;
+    }
+
+    // escreve a partir de offset e devolve a posição depois do último byte
+    public static int encode(Payment payment, byte[] buffer, int offset) {
+        int pos = offset;
+        pos = put(buffer, pos, PREFIX);
+        pos = putUuid(buffer, pos, payment.correlationIdMsb(), payment.correlationIdLsb());
+        pos = put(buffer, pos, AMOUNT_FIELD);
+        pos = putCents(buffer, pos, payment.amountCents());
+        pos = put(buffer, pos, REQUESTED_AT_FIELD);
+        pos = put(buffer, pos, iso(payment.requestedAt()));
+        pos = put(buffer, pos, SUFFIX);
+        return pos;
+    }
+
+    public static byte[] toBytes(Payment payment) {
+        byte[] bytes = new byte[encodedLength(payment)];
+        encode(payment, bytes, 0);
+        return bytes;
+    }
+
+    public static String uuid(long msb, long lsb) {
+        byte[] bytes = new byte[UUID_LENGTH];
+        putUuid(bytes, 0, msb, lsb);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] iso(long epochSecond) {
+        Second second = currentSecond;
+        if (second.epochSecond() == epochSecond) return second.iso();
+        // retry de um segundo que já passou: formata sem mexer no cache
+        if (epochSecond < second.epochSecond()) return second(epochSecond).iso();
+        second = second(epochSecond);
+        currentSecond = second;
+        return second.iso();
+    }
+
+    private static Second second(long epochSecond) {
+        return new Second(epochSecond, ascii(Instant.ofEpochSecond(epochSecond).toString()));
+    }
+
+    private static long hex(byte[] body, int from, int digits) {
+        long value = 0;
+        for (int i = from; i < from + digits; i++) {
+            byte b = body[i];
+            int digit;
+            if (b >= '0' && b <= '9') digit = b - '0';
+            else if (b >= 'a' && b <= 'f') digit = b - 'a' + 10;
+            else if (b >= 'A' && b <= 'F') digit = b - 'A' + 10;
+            else throw invalid("correlationId");
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static int putUuid(byte[] buffer, int pos, long msb, long lsb) {
+        pos = putHex(buffer, pos, msb >>> 32, 8);
+        buffer[pos++] = '-';
+        pos = putHex(buffer, pos, msb >>> 16, 4);
+        buffer[pos++] = '-';
+        pos = putHex(buffer, pos, msb, 4);
+        buffer[pos++] = '-';
+        pos = putHex(buffer, pos, lsb >>> 48, 4);
+        buffer[pos++] = '-';
+        return putHex(buffer, pos, lsb, 12);
+    }
+
+    private static int putHex(byte[] buffer, int pos, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[pos + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    private static int putCents(byte[] buffer, int pos, long cents) {
+        long units = cents / 100;
+        int fraction = (int) (cents % 100);
+        pos = putLong(buffer, pos, units);
+        buffer[pos++] = '.';
+        buffer[pos++] = (byte) ('0' + fraction / 10);
+        buffer[pos++] = (byte) ('0' + fraction % 10);
+        return pos;
+    }
+
+    private static int putLong(byte[] buffer, int pos, long value) {
+        if (value == 0) {
+            buffer[pos++] = '0';
+            return pos;
+        }
+        int start = pos;
+        while (value > 0) {
+            buffer[pos++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return pos;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int put(byte[] buffer, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static int indexOf(byte[] body, byte target, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (body[i] == target) return i;
+        }
+        throw new IllegalArgumentException("Malformed payment body");
+    }
+
+    // fim do valor que começa em from; números, true/false/null ficam para o laço principal
+    private static int skipValue(byte[] body, int from, int end) {
+        if (body[from] == '"') return skipString(body, from, end);
+        if (body[from] != '{' && body[from] != '[') return from;
+        int depth = 0;
+        for (int i = from; i < end; ) {
+            byte b = body[i];
+            if (b == '"') {
+                i = skipString(body, i, end);
+                continue;
+            }
+            if (b == '{' || b == '[') depth++;
+            else if ((b == '}' || b == ']') && --depth == 0) return i + 1;
+            i++;
+        }
+        throw new IllegalArgumentException("Malformed payment body");
+    }
+
+    // from aponta para a aspa de abertura; devolve a posição depois da de fechamento
+    private static int skipString(byte[] body, int from, int end) {
+        for (int i = from + 1; i < end; i++) {
+            if (body[i] == '\\') i++;
+            else if (body[i] == '"') return i + 1;
+        }
+        throw new IllegalArgumentException("Malformed payment body");
+    }
+
+    private static int skipWhitespace(byte[] body, int from, int end) {
+        int i = from;
+        while (i < end && (body[i] == ' ' || body[i] == '\t' || body[i] == '\n' || body[i] == '\r')) i++;
+        return i;
+    }
+
+    private static boolean endsValue(byte b) {
+        return b == ',' || b == '}' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean equals(byte[] body, int start, int end, byte[] key) {
+        if (end - start != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (body[start + i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException invalid(String field) {
+        return new IllegalArgumentException("Invalid payment field: " + field);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -1,21 +0,0 @@
-package com.jpdev01.rinha.config;
-
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-import java.net.http.HttpClient;
-import java.time.Duration;
-
-@Configuration
-public class HttpClientConfiguration {
-
-    @Bean
-    public HttpClient httpClient() {
-        return HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.NEVER)
-                .version(HttpClient.Version.HTTP_1_1)
-                .executor(Runnable::run)
-                .connectTimeout(Duration.ofMillis(60))
-                .build();
-    }
-}
\ No newline at end of file
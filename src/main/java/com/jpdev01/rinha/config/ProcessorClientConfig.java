@@ -0,0 +1,28 @@
+package com.jpdev01.rinha.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpdev01.rinha.integration.client.ProcessorClient;
+import com.jpdev01.rinha.integration.http.ProcessorHttpEngine;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
+import com.jpdev01.rinha.state.Processor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// um ProcessorClient por processador; quem usa escolhe pelo nome do bean
+@Configuration
+public class ProcessorClientConfig {
+
+    @Value("${services.processor-timeout-ms:20000}")
+    private long timeoutMillis;
+
+    @Bean
+    public ProcessorClient defaultClient(ProcessorHttpEngine processorHttpEngine, PaymentMetrics paymentMetrics, ObjectMapper objectMapper) {
+        return new ProcessorClient(Processor.DEFAULT, processorHttpEngine, paymentMetrics, objectMapper, timeoutMillis);
+    }
+
+    @Bean
+    public ProcessorClient fallbackClient(ProcessorHttpEngine processorHttpEngine, PaymentMetrics paymentMetrics, ObjectMapper objectMapper) {
+        return new ProcessorClient(Processor.FALLBACK, processorHttpEngine, paymentMetrics, objectMapper, timeoutMillis);
+    }
+}
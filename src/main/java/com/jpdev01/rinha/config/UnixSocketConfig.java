@@ -0,0 +1,60 @@
+package com.jpdev01.rinha.config;
+
+import org.apache.catalina.connector.Connector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Listener HTTP num Unix domain socket para o tráfego nginx -> API, sem passar pela pilha TCP.
+ * O conector NIO do Tomcat abre o socket com UnixDomainSocketAddress (JDK 16+) e atende as
+ * mesmas rotas do server.port. Com server.unix-socket-only o conector principal vai para o
+ * socket e a porta TCP deixa de ser aberta. Com server.ingress-mode=lean o socket fica com o
+ * LeanHttpServer e o Tomcat só atende no server.port.
+ */
+@Configuration
+public class UnixSocketConfig implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    @Value("${server.unix-socket-path:}")
+    private String socketPath;
+
+    @Value("${server.unix-socket-only:false}")
+    private boolean socketOnly;
+
+    @Value("${server.ingress-mode:servlet}")
+    private String ingressMode;
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        if (socketPath == null || socketPath.isBlank()) return;
+        if ("lean".equalsIgnoreCase(ingressMode)) return;
+
+        deleteStaleSocket();
+        if (socketOnly) {
+            factory.addConnectorCustomizers(this::bindToSocket);
+        } else {
+            Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+            bindToSocket(connector);
+            factory.addAdditionalTomcatConnectors(connector);
+        }
+        System.out.println("Listening on unix socket " + socketPath);
+    }
+
+    private void bindToSocket(Connector connector) {
+        connector.setProperty("unixDomainSocketPath", socketPath);
+        connector.setProperty("unixDomainSocketPathPermissions", UnixSockets.PERMISSIONS);
+    }
+
+    private void deleteStaleSocket() {
+        try {
+            UnixSockets.deleteStale(Path.of(socketPath));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare unix socket " + socketPath, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.jpdev01.rinha.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+// preparo do arquivo do Unix domain socket, comum ao conector do Tomcat e ao LeanHttpServer
+public final class UnixSockets {
+
+    // o nginx roda com outro usuário e precisa de escrita no socket
+    public static final String PERMISSIONS = "rw-rw-rw-";
+
+    private UnixSockets() {
+    }
+
+    // arquivo que sobrou de um processo anterior impede o bind
+    public static void deleteStale(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.deleteIfExists(path);
+    }
+
+    // para quem faz o bind direto; o Tomcat aplica PERMISSIONS sozinho
+    public static void grantAccess(Path path) throws IOException {
+        Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(PERMISSIONS));
+    }
+}
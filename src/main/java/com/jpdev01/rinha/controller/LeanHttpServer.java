@@ -0,0 +1,400 @@
+package com.jpdev01.rinha.controller;
+
+import com.jpdev01.rinha.codec.PaymentCodec;
+import com.jpdev01.rinha.config.UnixSockets;
+import com.jpdev01.rinha.dto.PaymentProcessorSummaryDTO;
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
+import com.jpdev01.rinha.service.PaymentService;
+import com.jpdev01.rinha.service.PaymentStatusIndex;
+import com.jpdev01.rinha.service.WarmupService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Ingress HTTP/1.1 mínimo para server.ingress-mode=lean: ServerSocketChannel bloqueante com uma
+ * virtual thread por conexão, falando direto com o PaymentService, sem DispatcherServlet nem Jackson.
+ * Atende as rotas do PaymentController com keep-alive e pipelining (as respostas de um mesmo read
+ * saem num único write). Escuta no server.unix-socket-path quando configurado (o UnixSocketConfig
+ * deixa o socket para ele) ou na server.lean-port; o Tomcat continua no server.port para
+ * health check, /admin/metrics e o resumo do peer.
+ */
+@Component
+public class LeanHttpServer {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // maior resposta possível (resumo); abaixo disso de espaço livre o buffer de saída é escrito antes
+    private static final int MAX_RESPONSE_SIZE = 512;
+
+    private static final byte[] OK = response("200 OK", null, "");
+    private static final byte[] HEALTH = response("200 OK", "text/plain", "UP");
+    private static final byte[] WARMING = response("503 Service Unavailable", "text/plain", "WARMING");
+    private static final byte[] BAD_REQUEST = response("400 Bad Request", null, "");
+    private static final byte[] NOT_FOUND = response("404 Not Found", null, "");
+    private static final byte[] LENGTH_REQUIRED = response("411 Length Required", null, "");
+    private static final byte[] TOO_LARGE = response("413 Content Too Large", null, "");
+    private static final byte[] SERVER_ERROR = response("500 Internal Server Error", null, "");
+    private static final byte[] UNAVAILABLE = response("503 Service Unavailable", null, "");
+
+    private static final byte[] CONTENT_LENGTH = ascii("content-length");
+    private static final byte[] CONNECTION = ascii("connection");
+    private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+    private static final byte[] CLOSE = ascii("close");
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+    private static final byte[] HTTP_1_0 = ascii("http/1.0");
+
+    private static final String PAYMENTS = "/payments";
+    private static final String PAYMENTS_PREFIX = "/payments/";
+
+    private final PaymentService paymentService;
+    private final PaymentMetrics paymentMetrics;
+    private final WarmupService warmupService;
+
+    @Value("${server.ingress-mode:servlet}")
+    private String ingressMode;
+
+    @Value("${server.unix-socket-path:}")
+    private String socketPath;
+
+    @Value("${server.lean-port:9998}")
+    private int leanPort;
+
+    private final ThreadFactory connectionThreads = Thread.ofVirtual().name("lean-http-", 0).factory();
+    private volatile ServerSocketChannel server;
+
+    public LeanHttpServer(PaymentService paymentService, PaymentMetrics paymentMetrics, WarmupService warmupService) {
+        this.paymentService = paymentService;
+        this.paymentMetrics = paymentMetrics;
+        this.warmupService = warmupService;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!"lean".equalsIgnoreCase(ingressMode)) return;
+        try {
+            server = open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start lean ingress", e);
+        }
+        Thread.ofVirtual().name("lean-http-acceptor").start(this::accept);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        ServerSocketChannel current = server;
+        if (current != null) current.close();
+    }
+
+    private ServerSocketChannel open() throws IOException {
+        if (socketPath == null || socketPath.isBlank()) {
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(leanPort), 1024);
+            System.out.println("Lean ingress listening on port " + leanPort);
+            return channel;
+        }
+
+        Path path = Path.of(socketPath);
+        UnixSockets.deleteStale(path);
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(UnixDomainSocketAddress.of(path), 1024);
+        UnixSockets.grantAccess(path);
+        System.out.println("Lean ingress listening on unix socket " + socketPath);
+        return channel;
+    }
+
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Lean ingress accept failed: " + e.getMessage());
+                continue;
+            }
+            connectionThreads.newThread(() -> serve(channel)).start();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            if (channel.getLocalAddress() instanceof InetSocketAddress) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+            boolean open = true;
+            while (open) {
+                if (channel.read(in) < 0) return;
+                in.flip();
+                // pipelining: atende tudo que já chegou completo antes de escrever
+                while (open) {
+                    if (out.remaining() < MAX_RESPONSE_SIZE) flush(out, channel);
+                    int consumed = handle(in, out);
+                    if (consumed == 0) break;
+                    if (consumed < 0) open = false;
+                    else in.position(consumed);
+                }
+                if (open && in.position() == 0 && in.limit() == in.capacity()) {
+                    // cabeçalho ou corpo maior que o buffer inteiro
+                    if (out.remaining() < MAX_RESPONSE_SIZE) flush(out, channel);
+                    put(out, TOO_LARGE);
+                    open = false;
+                }
+                in.compact();
+                flush(out, channel);
+            }
+        } catch (IOException e) {
+            // cliente fechou no meio; nada a responder
+        }
+    }
+
+    // posição logo após a requisição atendida; 0 se ela ainda não chegou inteira; -1 para fechar a conexão
+    private int handle(ByteBuffer in, ByteBuffer out) {
+        byte[] buf = in.array();
+        int start = in.position();
+        int limit = in.limit();
+        int headerEnd = indexOfHeaderEnd(buf, start, limit);
+        if (headerEnd < 0) return 0;
+
+        int methodEnd = indexOf(buf, (byte) ' ', start, headerEnd);
+        int targetEnd = methodEnd < 0 ? -1 : indexOf(buf, (byte) ' ', methodEnd + 1, headerEnd);
+        int lineEnd = indexOf(buf, (byte) '\r', start, headerEnd);
+        if (targetEnd < 0 || lineEnd < targetEnd) {
+            put(out, BAD_REQUEST);
+            return -1;
+        }
+        boolean keepAlive = !equalsIgnoreCase(buf, targetEnd + 1, lineEnd, HTTP_1_0);
+
+        int contentLength = 0;
+        int line = lineEnd + 2;
+        while (line < headerEnd) {
+            int end = indexOf(buf, (byte) '\r', line, headerEnd + 2);
+            int colon = indexOf(buf, (byte) ':', line, end);
+            if (colon > 0) {
+                int value = skipWhitespace(buf, colon + 1, end);
+                if (equalsIgnoreCase(buf, line, colon, CONTENT_LENGTH)) {
+                    contentLength = parseInt(buf, value, end);
+                    if (contentLength < 0) {
+                        put(out, BAD_REQUEST);
+                        return -1;
+                    }
+                } else if (equalsIgnoreCase(buf, line, colon, CONNECTION)) {
+                    if (equalsIgnoreCase(buf, value, end, CLOSE)) keepAlive = false;
+                    else if (equalsIgnoreCase(buf, value, end, KEEP_ALIVE)) keepAlive = true;
+                } else if (equalsIgnoreCase(buf, line, colon, TRANSFER_ENCODING)) {
+                    // o nginx sempre manda Content-Length; chunked não vale o parser
+                    put(out, LENGTH_REQUIRED);
+                    return -1;
+                }
+            }
+            line = end + 2;
+        }
+
+        int bodyStart = headerEnd + 4;
+        if (bodyStart + contentLength - start > in.capacity()) {
+            put(out, TOO_LARGE);
+            return -1;
+        }
+        if (bodyStart + contentLength > limit) return 0;
+
+        try {
+            route(buf, start, methodEnd, targetEnd, bodyStart, contentLength, out);
+        } catch (RuntimeException e) {
+            // banco fora, mmap com erro: responde 500 como o servlet e segue com a conexão
+            System.err.println("Error handling " + new String(buf, start, targetEnd - start, StandardCharsets.US_ASCII) + ": " + e.getMessage());
+            put(out, SERVER_ERROR);
+        }
+        return keepAlive ? bodyStart + contentLength : -1;
+    }
+
+    private void route(byte[] buf, int start, int methodEnd, int targetEnd, int bodyStart, int contentLength, ByteBuffer out) {
+        String method = new String(buf, start, methodEnd - start, StandardCharsets.US_ASCII);
+        String target = new String(buf, methodEnd + 1, targetEnd - methodEnd - 1, StandardCharsets.US_ASCII);
+        int query = target.indexOf('?');
+        String path = query < 0 ? target : target.substring(0, query);
+
+        if ("POST".equals(method) && PAYMENTS.equals(path)) {
+            payments(buf, bodyStart, contentLength, out);
+        } else if ("GET".equals(method) && "/payments-summary".equals(path)) {
+            summary(target, query, false, out);
+        } else if ("GET".equals(method) && "/internal/payments-summary".equals(path)) {
+            summary(target, query, true, out);
+        } else if ("GET".equals(method) && path.startsWith(PAYMENTS_PREFIX)) {
+            paymentStatus(path.substring(PAYMENTS_PREFIX.length()), out);
+        } else if ("POST".equals(method) && "/purge-payments".equals(path)) {
+            paymentService.purge();
+            put(out, OK);
+        } else if ("POST".equals(method) && "/internal/purge".equals(path)) {
+            paymentService.purgeLocal();
+            put(out, OK);
+        } else if ("GET".equals(method) && "/health".equals(path)) {
+            put(out, warmupService.isReady() ? HEALTH : WARMING);
+        } else {
+            put(out, NOT_FOUND);
+        }
+    }
+
+    private void payments(byte[] buf, int bodyStart, int contentLength, ByteBuffer out) {
+        long start = System.nanoTime();
+        Payment payment;
+        try {
+            payment = PaymentCodec.parse(buf, bodyStart, contentLength);
+        } catch (IllegalArgumentException e) {
+            put(out, BAD_REQUEST);
+            return;
+        }
+        boolean accepted = paymentService.process(payment);
+        paymentMetrics.recordAccept(System.nanoTime() - start);
+        put(out, accepted ? OK : SERVER_ERROR);
+    }
+
+    private void summary(String target, int query, boolean local, ByteBuffer out) {
+        Instant from;
+        Instant to;
+        try {
+            from = instantParam(target, query, "from");
+            to = instantParam(target, query, "to");
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            put(out, BAD_REQUEST);
+            return;
+        }
+        PaymentSummaryResponseDTO summary = local
+                ? paymentService.getLocalPayments(from, to)
+                : paymentService.getPayments(from, to);
+        if (summary == null) {
+            put(out, UNAVAILABLE);
+            return;
+        }
+        String json = "{\"default\":" + json(summary.defaultSummary()) + ",\"fallback\":" + json(summary.fallbackSummary()) + "}";
+        put(out, response("200 OK", "application/json", json));
+    }
+
+    private void paymentStatus(String correlationId, ByteBuffer out) {
+        UUID id;
+        try {
+            id = UUID.fromString(correlationId);
+        } catch (IllegalArgumentException e) {
+            put(out, BAD_REQUEST);
+            return;
+        }
+        PaymentStatusIndex.Status status = paymentService.status(id);
+        if (status == null) {
+            put(out, NOT_FOUND);
+            return;
+        }
+        String json = "{\"correlationId\":\"" + id + "\",\"status\":\"" + status.name().toLowerCase(Locale.ROOT) + "\"}";
+        put(out, response("200 OK", "application/json", json));
+    }
+
+    private static String json(PaymentProcessorSummaryDTO summary) {
+        return "{\"totalRequests\":" + summary.totalRequests()
+                + ",\"totalAmount\":" + BigDecimal.valueOf(summary.totalAmountCents(), 2).toPlainString() + "}";
+    }
+
+    // null quando o parâmetro não veio ou veio vazio, como o required=false do controller
+    private static Instant instantParam(String target, int query, String name) {
+        if (query < 0) return null;
+        for (String pair : target.substring(query + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0 || !name.equals(pair.substring(0, eq))) continue;
+            String value = URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            return value.isEmpty() ? null : Instant.parse(value);
+        }
+        return null;
+    }
+
+    private void flush(ByteBuffer out, SocketChannel channel) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+
+    private static void put(ByteBuffer out, byte[] response) {
+        out.put(response);
+    }
+
+    private static byte[] response(String status, String contentType, String body) {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + "\r\n"
+                + (contentType == null ? "" : "Content-Type: " + contentType + "\r\n")
+                + "Content-Length: " + content.length + "\r\n\r\n";
+        byte[] headBytes = ascii(head);
+        byte[] bytes = new byte[headBytes.length + content.length];
+        System.arraycopy(headBytes, 0, bytes, 0, headBytes.length);
+        System.arraycopy(content, 0, bytes, headBytes.length, content.length);
+        return bytes;
+    }
+
+    private static int indexOfHeaderEnd(byte[] buf, int from, int limit) {
+        for (int i = from; i + 3 < limit; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buf, byte target, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buf[i] == target) return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] buf, int from, int end) {
+        int i = from;
+        while (i < end && (buf[i] == ' ' || buf[i] == '\t')) i++;
+        return i;
+    }
+
+    private static int parseInt(byte[] buf, int from, int end) {
+        if (from >= end) return -1;
+        int value = 0;
+        for (int i = from; i < end; i++) {
+            byte b = buf[i];
+            if (b == ' ' || b == '\t') break;
+            if (b < '0' || b > '9' || value > BUFFER_SIZE) return -1;
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] buf, int start, int end, byte[] lowerCase) {
+        while (end > start && (buf[end - 1] == ' ' || buf[end - 1] == '\t')) end--;
+        if (end - start != lowerCase.length) return false;
+        for (int i = 0; i < lowerCase.length; i++) {
+            byte b = buf[start + i];
+            if (b >= 'A' && b <= 'Z') b += 32;
+            if (b != lowerCase[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,208 @@
+package com.jpdev01.rinha.controller;
+
+import com.jpdev01.rinha.integration.http.HttpConnectionPool;
+import com.jpdev01.rinha.integration.http.ProcessorHttpEngine;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
+import com.jpdev01.rinha.metrics.PrometheusTextWriter;
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
+import com.jpdev01.rinha.service.PaymentJournal;
+import com.jpdev01.rinha.service.PaymentQueue;
+import com.jpdev01.rinha.service.PaymentStatusIndex;
+import com.jpdev01.rinha.service.PaymentWriteBehindService;
+import com.jpdev01.rinha.service.ProcessorRouter;
+import com.jpdev01.rinha.service.RetryScheduler;
+import com.jpdev01.rinha.state.CircuitBreaker;
+import com.jpdev01.rinha.state.ClientState;
+import com.jpdev01.rinha.state.ConcurrencyLimiter;
+import com.jpdev01.rinha.state.DefaultClientState;
+import com.jpdev01.rinha.state.FallbackClientState;
+import com.jpdev01.rinha.state.LatencyEstimator;
+import com.jpdev01.rinha.state.Processor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+// métricas do pipeline para o Prometheus; só lê contadores e snapshots, pode ficar ligado em produção
+@RestController
+public class MetricsController {
+
+    private final PaymentMetrics paymentMetrics;
+    private final RetryScheduler retryScheduler;
+    private final PaymentWriteBehindService paymentWriteBehindService;
+    private final ProcessorRouter processorRouter;
+    private final DefaultClientState defaultClientState;
+    private final FallbackClientState fallbackClientState;
+    private final ProcessorHttpEngine processorHttpEngine;
+    private final PaymentStatusIndex paymentStatusIndex;
+    private final PaymentJournal paymentJournal;
+
+    public MetricsController(PaymentMetrics paymentMetrics, RetryScheduler retryScheduler, PaymentWriteBehindService paymentWriteBehindService, ProcessorRouter processorRouter, DefaultClientState defaultClientState, FallbackClientState fallbackClientState, ProcessorHttpEngine processorHttpEngine, PaymentStatusIndex paymentStatusIndex, PaymentJournal paymentJournal) {
+        this.paymentMetrics = paymentMetrics;
+        this.retryScheduler = retryScheduler;
+        this.paymentWriteBehindService = paymentWriteBehindService;
+        this.processorRouter = processorRouter;
+        this.defaultClientState = defaultClientState;
+        this.fallbackClientState = fallbackClientState;
+        this.processorHttpEngine = processorHttpEngine;
+        this.paymentStatusIndex = paymentStatusIndex;
+        this.paymentJournal = paymentJournal;
+    }
+
+    @GetMapping("/admin/metrics")
+    public ResponseEntity<String> metrics() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+
+        writer.header("rinha_accept_seconds", "summary", "POST /payments from body parse to enqueue");
+        writer.summary("rinha_accept_seconds", paymentMetrics.accept());
+
+        writer.header("rinha_queue_wait_seconds", "summary", "Time a payment waited in its scheduler lane");
+        for (Lane lane : Lane.values()) {
+            writer.summary("rinha_queue_wait_seconds", paymentMetrics.queueWait(lane), "lane", label(lane));
+        }
+
+        writer.header("rinha_processor_call_seconds", "summary", "Payment processor call latency by processor and outcome");
+        for (Processor processor : Processor.values()) {
+            writer.summary("rinha_processor_call_seconds", paymentMetrics.processorCall(processor, true), "processor", label(processor), "outcome", "success");
+            writer.summary("rinha_processor_call_seconds", paymentMetrics.processorCall(processor, false), "processor", label(processor), "outcome", "failure");
+        }
+
+        writer.header("rinha_db_insert_seconds", "summary", "Payment insert latency (one sample per batch)");
+        writer.summary("rinha_db_insert_seconds", paymentMetrics.dbInsert());
+
+        writer.header("rinha_summary_seconds", "summary", "GET /payments-summary latency");
+        writer.summary("rinha_summary_seconds", paymentMetrics.summary());
+
+        writer.header("rinha_processor_duplicates_total", "counter", "Processor answered 422 (payment already processed)");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_processor_duplicates_total", paymentMetrics.duplicates(processor), "processor", label(processor));
+        }
+
+        writer.header("rinha_ingest_duplicates_total", "counter", "POST /payments dropped because the correlationId was already known");
+        writer.sample("rinha_ingest_duplicates_total", paymentMetrics.ingestDuplicates());
+        writer.header("rinha_payment_index_size", "gauge", "correlationIds tracked by the in-memory status index");
+        writer.sample("rinha_payment_index_size", paymentStatusIndex.size());
+
+        writer.header("rinha_journal_pending", "gauge", "Accepted payments not yet confirmed, as recorded in the journal");
+        writer.sample("rinha_journal_pending", paymentJournal.pending());
+        writer.header("rinha_journal_spilled", "gauge", "Payments held only on disk, waiting to be paged back into the queue");
+        writer.sample("rinha_journal_spilled", paymentJournal.spilled());
+        writer.header("rinha_journal_segments", "gauge", "Journal segments in use");
+        writer.sample("rinha_journal_segments", paymentJournal.segments());
+
+        PaymentQueue queue = PaymentQueue.getInstance();
+        writer.header("rinha_queue_depth", "gauge", "Payments waiting in each queue");
+        for (Lane lane : Lane.values()) {
+            writer.sample("rinha_queue_depth", queue.size(lane), "queue", label(lane));
+        }
+        writer.sample("rinha_queue_depth", queue.getInsertQueue().size(), "queue", "insert");
+
+        writer.header("rinha_retry_delayed", "gauge", "Retries waiting for their backoff");
+        writer.sample("rinha_retry_delayed", retryScheduler.delayedSize());
+        writer.header("rinha_retry_parked", "gauge", "Retries waiting for the processor retry budget");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_retry_parked", retryScheduler.parkedSize(processor), "processor", label(processor));
+        }
+
+        writer.header("rinha_write_behind_pending", "gauge", "Confirmed payments not yet in the database");
+        writer.sample("rinha_write_behind_pending", paymentWriteBehindService.pending());
+        writer.header("rinha_write_behind_batch_size", "gauge", "Current adaptive insert batch size");
+        writer.sample("rinha_write_behind_batch_size", paymentWriteBehindService.batchSize());
+        writer.header("rinha_write_behind_overflowed", "gauge", "Confirmed payments that did not fit the insert queue since it last drained");
+        writer.sample("rinha_write_behind_overflowed", paymentWriteBehindService.overflowed());
+
+        // cada família precisa sair contígua, então um laço por métrica
+        writer.header("rinha_processor_healthy", "gauge", "Last service-health result (1 = healthy)");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_processor_healthy", state(processor).health() ? 1 : 0, "processor", label(processor));
+        }
+        writer.header("rinha_processor_min_response_seconds", "gauge", "minResponseTime reported by service-health");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_processor_min_response_seconds", state(processor).getMinResponseTime() / 1e3, "processor", label(processor));
+        }
+        writer.header("rinha_circuit_breaker_state", "gauge", "0 = closed, 1 = open, 2 = half-open");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_circuit_breaker_state", breaker(processor).state().ordinal(), "processor", label(processor));
+        }
+        writer.header("rinha_circuit_breaker_failure_rate", "gauge", "Failure rate over the breaker window");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_circuit_breaker_failure_rate", breaker(processor).failureRate(), "processor", label(processor));
+        }
+        writer.header("rinha_circuit_breaker_slow_call_rate", "gauge", "Slow call rate over the breaker window");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_circuit_breaker_slow_call_rate", breaker(processor).slowCallRate(), "processor", label(processor));
+        }
+        writer.header("rinha_processor_latency_estimate_seconds", "gauge", "Router latency estimate");
+        for (Processor processor : Processor.values()) {
+            LatencyEstimator.Estimate estimate = processorRouter.estimate(processor);
+            writer.sample("rinha_processor_latency_estimate_seconds", estimate.ewmaMillis() / 1e3, "processor", label(processor), "stat", "ewma");
+            writer.sample("rinha_processor_latency_estimate_seconds", estimate.p50Millis() / 1e3, "processor", label(processor), "stat", "p50");
+            writer.sample("rinha_processor_latency_estimate_seconds", estimate.p99Millis() / 1e3, "processor", label(processor), "stat", "p99");
+        }
+
+        writer.header("rinha_concurrency_limit", "gauge", "Adaptive in-flight limit per processor");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_concurrency_limit", limiter(processor).limit(), "processor", label(processor));
+        }
+        writer.header("rinha_concurrency_in_flight", "gauge", "Processor calls holding a limiter slot");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_concurrency_in_flight", limiter(processor).inFlight(), "processor", label(processor));
+        }
+        writer.header("rinha_concurrency_rtt_seconds", "gauge", "RTTs the limiter compares (no-load minimum and smoothed)");
+        for (Processor processor : Processor.values()) {
+            ConcurrencyLimiter.Snapshot limiter = limiter(processor);
+            writer.sample("rinha_concurrency_rtt_seconds", limiter.minRttMillis() / 1e3, "processor", label(processor), "stat", "min");
+            writer.sample("rinha_concurrency_rtt_seconds", limiter.rttMillis() / 1e3, "processor", label(processor), "stat", "smoothed");
+        }
+
+        writer.header("rinha_http_connections", "gauge", "Processor connection pool state");
+        for (Processor processor : Processor.values()) {
+            HttpConnectionPool.Stats stats = pool(processor);
+            writer.sample("rinha_http_connections", stats.size(), "processor", label(processor), "state", "size");
+            writer.sample("rinha_http_connections", stats.open(), "processor", label(processor), "state", "open");
+            writer.sample("rinha_http_connections", stats.inFlight(), "processor", label(processor), "state", "in_flight");
+        }
+        writer.header("rinha_http_requests_total", "counter", "Requests sent through the processor pool");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_http_requests_total", pool(processor).requests(), "processor", label(processor));
+        }
+        writer.header("rinha_http_connects_total", "counter", "Connections opened, including reconnects");
+        for (Processor processor : Processor.values()) {
+            writer.sample("rinha_http_connects_total", pool(processor).connects(), "processor", label(processor));
+        }
+        writer.header("rinha_http_errors_total", "counter", "Processor pool errors by kind");
+        for (Processor processor : Processor.values()) {
+            HttpConnectionPool.Stats stats = pool(processor);
+            writer.sample("rinha_http_errors_total", stats.connectFailures(), "processor", label(processor), "kind", "connect");
+            writer.sample("rinha_http_errors_total", stats.failures(), "processor", label(processor), "kind", "io");
+            writer.sample("rinha_http_errors_total", stats.timeouts(), "processor", label(processor), "kind", "timeout");
+            writer.sample("rinha_http_errors_total", stats.staleRetries(), "processor", label(processor), "kind", "stale_retry");
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, PrometheusTextWriter.CONTENT_TYPE)
+                .body(writer.toString());
+    }
+
+    private ClientState state(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultClientState : fallbackClientState;
+    }
+
+    private CircuitBreaker.Snapshot breaker(Processor processor) {
+        return state(processor).circuitBreaker().snapshot();
+    }
+
+    private ConcurrencyLimiter.Snapshot limiter(Processor processor) {
+        return processorRouter.limiter(processor).snapshot();
+    }
+
+    private HttpConnectionPool.Stats pool(Processor processor) {
+        return processorHttpEngine.pool(processor).stats();
+    }
+
+    private static String label(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
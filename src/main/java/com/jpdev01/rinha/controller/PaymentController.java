@@ -1,45 +1,77 @@
 package com.jpdev01.rinha.controller;
 
+import com.jpdev01.rinha.codec.PaymentCodec;
+import com.jpdev01.rinha.dto.PaymentStatusResponseDTO;
 import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
-import com.jpdev01.rinha.dto.SavePaymentRequestDTO;
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
 import com.jpdev01.rinha.service.PaymentQueue;
 import com.jpdev01.rinha.service.PaymentService;
+import com.jpdev01.rinha.service.PaymentStatusIndex;
+import com.jpdev01.rinha.service.WarmupService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/")
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentMetrics paymentMetrics;
+    private final WarmupService warmupService;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentMetrics paymentMetrics, WarmupService warmupService) {
         this.paymentService = paymentService;
+        this.paymentMetrics = paymentMetrics;
+        this.warmupService = warmupService;
     }
 
 
     @ResponseStatus(HttpStatus.OK)
     @PostMapping("/payments")
-    public Mono<ResponseEntity<Void>> payments(@RequestBody SavePaymentRequestDTO payment) {
-        return paymentService.process(payment)
-                .map(success -> {
-                    if (success) {
-                        return ResponseEntity.ok().build();
-                    } else {
-                        return ResponseEntity.status(500).build();
-                    }
-                });
+    public ResponseEntity<Void> payments(@RequestBody byte[] body) {
+        long start = System.nanoTime();
+        Payment payment;
+        try {
+            payment = PaymentCodec.parse(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean accepted = paymentService.process(payment);
+        paymentMetrics.recordAccept(System.nanoTime() - start);
+        return accepted ? ResponseEntity.ok().build() : ResponseEntity.status(500).build();
+    }
+
+    // só o que esta instância viu; responde da memória, sem ir ao banco
+    @GetMapping("/payments/{correlationId}")
+    public ResponseEntity<PaymentStatusResponseDTO> paymentStatus(@PathVariable("correlationId") String correlationId) {
+        UUID id;
+        try {
+            id = UUID.fromString(correlationId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        PaymentStatusIndex.Status status = paymentService.status(id);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new PaymentStatusResponseDTO(id, status.name().toLowerCase(Locale.ROOT)));
     }
 
     @ResponseStatus(HttpStatus.OK)
     @GetMapping("/health")
     public ResponseEntity<String> health() {
+        // 503 até o aquecimento terminar: o healthcheck do compose segura o nginx
+        if (!warmupService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("WARMING");
+        }
         return ResponseEntity.ok("UP");
     }
 
@@ -49,10 +81,27 @@ public class PaymentController {
         paymentService.purge();
     }
 
+    @ResponseStatus(HttpStatus.OK)
+    @PostMapping("/internal/purge")
+    public void purgeLocalPayments() {
+        paymentService.purgeLocal();
+    }
+
     @GetMapping("/payments-summary")
     public ResponseEntity<PaymentSummaryResponseDTO> paymentsSummary(
             @RequestParam(value = "from", required = false) Instant from,
               @RequestParam(value = "to", required = false) Instant to) {
         return ResponseEntity.ok(paymentService.getPayments(from, to));
     }
+
+    @GetMapping("/internal/payments-summary")
+    public ResponseEntity<PaymentSummaryResponseDTO> localPaymentsSummary(
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) {
+        PaymentSummaryResponseDTO summary = paymentService.getLocalPayments(from, to);
+        if (summary == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(summary);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.jpdev01.rinha.dto;
+
+// pagamentos gravados num segundo de requestedAt por um processador; soma em centavos
+public record PaymentBucketDTO(long second, boolean processedAtDefault, long totalRequests, long totalAmountCents) {
+}
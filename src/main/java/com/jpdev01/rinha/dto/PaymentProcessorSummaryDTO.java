@@ -1,8 +1,22 @@
 package com.jpdev01.rinha.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
 
-public record PaymentProcessorSummaryDTO(int totalRequests, BigDecimal totalAmount, @JsonIgnore  Boolean processedAtDefault) {
-}
\ No newline at end of file
+// soma em centavos; só vira decimal na serialização
+public record PaymentProcessorSummaryDTO(long totalRequests, @JsonIgnore long totalAmountCents, @JsonIgnore Boolean processedAtDefault) {
+
+    @JsonCreator
+    public static PaymentProcessorSummaryDTO fromJson(@JsonProperty("totalRequests") long totalRequests,
+                                                      @JsonProperty("totalAmount") BigDecimal totalAmount) {
+        return new PaymentProcessorSummaryDTO(totalRequests, totalAmount.movePointRight(2).longValue(), null);
+    }
+
+    @JsonProperty("totalAmount")
+    public BigDecimal totalAmount() {
+        return BigDecimal.valueOf(totalAmountCents, 2);
+    }
+}
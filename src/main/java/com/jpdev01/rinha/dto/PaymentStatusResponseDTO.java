@@ -0,0 +1,7 @@
+package com.jpdev01.rinha.dto;
+
+import java.util.UUID;
+
+// status: accepted, in_flight, confirmed_default ou confirmed_fallback
+public record PaymentStatusResponseDTO(UUID correlationId, String status) {
+}
@@ -0,0 +1,15 @@
+package com.jpdev01.rinha.entity;
+
+import java.util.UUID;
+
+/**
+ * Pagamento em forma compacta: o correlationId em dois longs, o valor em centavos
+ * e o requestedAt em segundos desde a epoch. É o que circula pela fila, clientes,
+ * repositório e resumo.
+ */
+public record Payment(long correlationIdMsb, long correlationIdLsb, long amountCents, long requestedAt) {
+
+    public UUID correlationId() {
+        return new UUID(correlationIdMsb, correlationIdLsb);
+    }
+}
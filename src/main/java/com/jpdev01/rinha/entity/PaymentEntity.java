@@ -1,38 +1,46 @@
 package com.jpdev01.rinha.entity;
 
-import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.UUID;
 
 public class PaymentEntity {
 
-    private UUID correlationId;
-    private BigDecimal amount;
-    private Instant requestedAt;
+    private Payment payment;
     private boolean processedAtDefault;
+    // geração do write-behind no enqueue; lote de antes do purge não é gravado
+    private long generation;
 
-    public PaymentEntity(UUID correlationId, BigDecimal amount, Instant requestedAt, boolean processedAtDefault) {
-        this.correlationId = correlationId;
-        this.amount = amount;
-        this.requestedAt = requestedAt;
+    public PaymentEntity(Payment payment, boolean processedAtDefault) {
+        this.payment = payment;
         this.processedAtDefault = processedAtDefault;
     }
 
     public PaymentEntity() {}
 
+    public Payment getPayment() {
+        return payment;
+    }
+
     public UUID getCorrelationId() {
-        return correlationId;
+        return payment.correlationId();
     }
 
-    public BigDecimal getAmount() {
-        return amount;
+    public long getAmountCents() {
+        return payment.amountCents();
     }
 
-    public Instant getRequestedAt() {
-        return requestedAt;
+    public long getRequestedAt() {
+        return payment.requestedAt();
     }
 
     public boolean isProcessedAtDefault() {
         return processedAtDefault;
     }
-}
\ No newline at end of file
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+}
@@ -1,32 +1,15 @@
 package com.jpdev01.rinha.integration.client;
 
-import com.jpdev01.rinha.dto.SavePaymentRequestDTO;
+import com.jpdev01.rinha.entity.Payment;
 import com.jpdev01.rinha.integration.dto.HealthResponseDTO;
-import reactor.core.publisher.Mono;
 
-public interface PaymentClient {
-
-    Mono<Boolean> create(SavePaymentRequestDTO savePaymentRequestDTO);
+import java.util.concurrent.CompletableFuture;
 
-    Mono<HealthResponseDTO> health();
-
-    boolean createSync(SavePaymentRequestDTO savePaymentRequestDTO);
+public interface PaymentClient {
 
-    public default String toJson(SavePaymentRequestDTO request) {
-        return """
-                {
-                  "correlationId": "%s",
-                  "amount": %s,
-                  "requestedAt": "%s"
-                }
-                """.formatted(
-                escape(request.correlationId()),
-                request.amount().toPlainString(),
-                request.requestedAt().toString()
-        ).replace("\n", "").replace("  ", "");
-    }
+    // bloqueia só enquanto o pool do processador estiver cheio; a resposta chega pelo future
+    CompletableFuture<Boolean> createAsync(Payment payment) throws InterruptedException;
 
-    private String escape(String value) {
-        return value.replace("\"", "\\\"");
-    }
+    // null quando o processador não respondeu 200: quem chama mantém o último estado conhecido
+    CompletableFuture<HealthResponseDTO> health();
 }
@@ -0,0 +1,75 @@
+package com.jpdev01.rinha.integration.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import com.jpdev01.rinha.integration.http.HttpConnectionPool;
+import com.jpdev01.rinha.integration.http.HttpResult;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.time.Instant;
+
+// busca o resumo local da outra instância (api1 <-> api2) para somar ao nosso e repassa o purge
+@Service
+public class PeerSummaryClient {
+
+    private static final long TIMEOUT_MILLIS = 500;
+    private static final long PURGE_TIMEOUT_MILLIS = 5000;
+
+    @Value("${services.peer-url:}")
+    private String peerUrl;
+
+    private final ObjectMapper objectMapper;
+    private HttpConnectionPool pool;
+
+    public PeerSummaryClient(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isConfigured()) {
+            pool = new HttpConnectionPool("peer", URI.create(peerUrl), 2, 200);
+        }
+    }
+
+    public boolean isConfigured() {
+        return peerUrl != null && !peerUrl.isBlank();
+    }
+
+    public PaymentSummaryResponseDTO localSummary(Instant from, Instant to) {
+        try {
+            StringBuilder uri = new StringBuilder("/internal/payments-summary");
+            char separator = '?';
+            if (from != null) {
+                uri.append(separator).append("from=").append(from);
+                separator = '&';
+            }
+            if (to != null) {
+                uri.append(separator).append("to=").append(to);
+            }
+
+            HttpResult response = pool.send(pool.get(uri.toString()), TIMEOUT_MILLIS, true).get();
+            if (response.status() != 200) return null;
+            return objectMapper.readValue(response.body(), PaymentSummaryResponseDTO.class);
+        } catch (Exception e) {
+            System.err.println("Error fetching peer summary: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // o nginx manda o purge para uma instância só; a outra limpa o próprio estado em /internal/purge
+    public boolean purge() {
+        if (!isConfigured()) return true;
+        try {
+            HttpResult response = pool.send(pool.post("/internal/purge", 0), PURGE_TIMEOUT_MILLIS, false).get();
+            if (response.status() == 200) return true;
+            System.err.println("Peer purge answered " + response.status());
+        } catch (Exception e) {
+            System.err.println("Error purging peer: " + e.getMessage());
+        }
+        return false;
+    }
+}
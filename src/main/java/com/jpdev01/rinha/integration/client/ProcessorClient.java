@@ -0,0 +1,76 @@
+package com.jpdev01.rinha.integration.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpdev01.rinha.codec.PaymentCodec;
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.integration.dto.HealthResponseDTO;
+import com.jpdev01.rinha.integration.http.HttpConnectionPool;
+import com.jpdev01.rinha.integration.http.HttpResult;
+import com.jpdev01.rinha.integration.http.ProcessorHttpEngine;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
+import com.jpdev01.rinha.state.Processor;
+
+import java.util.concurrent.CompletableFuture;
+
+// cliente de um processador; o default e o fallback são dois beans desta classe (ProcessorClientConfig)
+public class ProcessorClient implements PaymentClient {
+
+    private static final long HEALTH_TIMEOUT_MILLIS = 2_000;
+    // sem resposta 200 (429 do rate limit, timeout, pool fora) o estado é desconhecido, não falho
+    private static final HealthResponseDTO UNKNOWN_HEALTH = null;
+
+    private final Processor processor;
+    private final ProcessorHttpEngine processorHttpEngine;
+    private final PaymentMetrics paymentMetrics;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+
+    public ProcessorClient(Processor processor, ProcessorHttpEngine processorHttpEngine, PaymentMetrics paymentMetrics, ObjectMapper objectMapper, long timeoutMillis) {
+        this.processor = processor;
+        this.processorHttpEngine = processorHttpEngine;
+        this.paymentMetrics = paymentMetrics;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createAsync(Payment payment) throws InterruptedException {
+        HttpConnectionPool pool = processorHttpEngine.pool(processor);
+        // o corpo é codificado direto no array da requisição: uma alocação por pagamento, sem cópia
+        int length = PaymentCodec.encodedLength(payment);
+        byte[] request = pool.post("/payments", length);
+        PaymentCodec.encode(payment, request, request.length - length);
+        return pool.send(request, timeoutMillis, false)
+                .thenApply(this::accepted);
+    }
+
+    private boolean accepted(HttpResult result) {
+        if (result.status() == 200) return true;
+        if (result.status() == 422) {
+            paymentMetrics.recordDuplicate(processor);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<HealthResponseDTO> health() {
+        HttpConnectionPool pool = processorHttpEngine.pool(processor);
+        try {
+            return pool.sendReserved(pool.get("/payments/service-health"), HEALTH_TIMEOUT_MILLIS, true)
+                    .thenApply(this::health);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(UNKNOWN_HEALTH);
+        }
+    }
+
+    private HealthResponseDTO health(HttpResult result) {
+        if (result.status() != 200) return UNKNOWN_HEALTH;
+        try {
+            return objectMapper.readValue(result.body(), HealthResponseDTO.class);
+        } catch (Exception e) {
+            return UNKNOWN_HEALTH;
+        }
+    }
+}
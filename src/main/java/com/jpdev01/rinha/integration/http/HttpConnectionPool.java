@@ -0,0 +1,355 @@
+package com.jpdev01.rinha.integration.http;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexões HTTP/1.1 keep-alive para um único host, com tamanho fixo.
+ * Cada conexão tem uma virtual thread própria que consome as requisições pendentes uma a uma;
+ * quem chama recebe um CompletableFuture e não fica parado esperando a resposta.
+ * O número de requisições em voo é limitado ao tamanho do pool: send bloqueia quando todas
+ * as conexões estão ocupadas. As conexões reservadas ficam só para sendReserved (health check),
+ * que assim não espera atrás dos pagamentos num pool saturado. As conexões são abertas no
+ * start (pré-aquecimento) e reabertas sob demanda quando o servidor fecha.
+ */
+public class HttpConnectionPool {
+
+    public record Stats(int size, int open, int inFlight, long requests, long connects,
+                        long connectFailures, long failures, long timeouts, long staleRetries) {
+    }
+
+    private record Exchange(byte[] request, long deadlineNanos, boolean readBody, Semaphore permit,
+                            CompletableFuture<HttpResult> future) {
+    }
+
+    private final String name;
+    private final String host;
+    private final int port;
+    private final int size;
+    private final int reserved;
+    private final int connectTimeoutMillis;
+    private final String hostHeader;
+    private final Map<String, byte[]> postHeads = new ConcurrentHashMap<>();
+
+    private final Semaphore permits;
+    private final Semaphore reservedPermits;
+    private final BlockingQueue<Exchange> pending = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder staleRetries = new LongAdder();
+
+    public HttpConnectionPool(String name, URI base, int size, int connectTimeoutMillis) {
+        this(name, base, size, connectTimeoutMillis, 0);
+    }
+
+    public HttpConnectionPool(String name, URI base, int size, int connectTimeoutMillis, int reserved) {
+        this.name = name;
+        this.host = base.getHost();
+        this.port = base.getPort() > 0 ? base.getPort() : 80;
+        this.size = size;
+        this.reserved = Math.min(reserved, size - 1);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.hostHeader = "Host: " + host + (base.getPort() > 0 ? ":" + port : "") + "\r\n";
+        this.permits = new Semaphore(size - this.reserved);
+        this.reservedPermits = new Semaphore(this.reserved);
+
+        for (int i = 0; i < size; i++) {
+            Thread.ofVirtual().name(name + "-http-" + i).start(new Connection()::run);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // bloqueia enquanto as conexões estiverem todas ocupadas (backpressure para o worker)
+    public CompletableFuture<HttpResult> send(byte[] request, long timeoutMillis, boolean readBody) throws InterruptedException {
+        return send(permits, request, timeoutMillis, readBody);
+    }
+
+    // fora da cota dos pagamentos: sempre há uma conexão livre para esta requisição
+    public CompletableFuture<HttpResult> sendReserved(byte[] request, long timeoutMillis, boolean readBody) throws InterruptedException {
+        return send(reserved > 0 ? reservedPermits : permits, request, timeoutMillis, readBody);
+    }
+
+    private CompletableFuture<HttpResult> send(Semaphore permit, byte[] request, long timeoutMillis, boolean readBody) throws InterruptedException {
+        permit.acquire();
+        CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        pending.add(new Exchange(request, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), readBody, permit, future));
+        return future;
+    }
+
+    // requisição completa em um único array, pronta para um único write: os cabeçalhos já escritos
+    // e os últimos length bytes livres para quem chama escrever o corpo direto, sem cópia
+    public byte[] post(String path, int length) {
+        byte[] head = postHeads.computeIfAbsent(path, p -> ascii("POST " + p + " HTTP/1.1\r\n" + hostHeader
+                + "Content-Type: application/json\r\nContent-Length: "));
+        int digits = digits(length);
+        byte[] request = new byte[head.length + digits + 4 + length];
+        int pos = put(request, 0, head);
+        for (int i = pos + digits - 1, value = length; i >= pos; i--, value /= 10) {
+            request[i] = (byte) ('0' + value % 10);
+        }
+        pos += digits;
+        request[pos++] = '\r';
+        request[pos++] = '\n';
+        request[pos++] = '\r';
+        request[pos] = '\n';
+        return request;
+    }
+
+    public byte[] get(String path) {
+        return ascii("GET " + path + " HTTP/1.1\r\n" + hostHeader + "Accept: application/json\r\n\r\n");
+    }
+
+    public Stats stats() {
+        int inFlight = size - permits.availablePermits() - reservedPermits.availablePermits();
+        return new Stats(size, open.get(), inFlight, requests.sum(),
+                connects.sum(), connectFailures.sum(), failures.sum(), timeouts.sum(), staleRetries.sum());
+    }
+
+    private final class Connection {
+
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private byte[] line = new byte[256];
+
+        void run() {
+            connect();
+            while (true) {
+                Exchange exchange;
+                try {
+                    exchange = pending.take();
+                } catch (InterruptedException e) {
+                    close();
+                    return;
+                }
+                HttpResult result;
+                try {
+                    result = execute(exchange);
+                } catch (RuntimeException e) {
+                    close();
+                    failures.increment();
+                    result = HttpResult.failed();
+                }
+                // libera antes de completar: o callback pode querer enviar de novo
+                exchange.permit().release();
+                exchange.future().complete(result);
+            }
+        }
+
+        private HttpResult execute(Exchange exchange) {
+            requests.increment();
+            for (int attempt = 0; ; attempt++) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(exchange.deadlineNanos() - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    timeouts.increment();
+                    return HttpResult.failed();
+                }
+                boolean reused = socket != null;
+                if (!reused && !connect()) return HttpResult.failed();
+
+                try {
+                    socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, remainingMillis));
+                    write(exchange.request());
+                    return readResponse(exchange.readBody());
+                } catch (SocketTimeoutException e) {
+                    close();
+                    timeouts.increment();
+                    return HttpResult.failed();
+                } catch (StaleConnectionException e) {
+                    close();
+                    // keep-alive fechado pelo servidor antes da nossa requisição: tenta uma vez numa conexão nova
+                    if (reused && attempt == 0) {
+                        staleRetries.increment();
+                        continue;
+                    }
+                    failures.increment();
+                    return HttpResult.failed();
+                } catch (IOException e) {
+                    close();
+                    failures.increment();
+                    return HttpResult.failed();
+                }
+            }
+        }
+
+        // falha na escrita numa conexão keep-alive quase sempre é o servidor que já fechou
+        private void write(byte[] request) throws IOException {
+            try {
+                out.write(request);
+                out.flush();
+            } catch (SocketTimeoutException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new StaleConnectionException();
+            }
+        }
+
+        private HttpResult readResponse(boolean readBody) throws IOException {
+            int first = in.read();
+            if (first < 0) throw new StaleConnectionException();
+
+            // status line: HTTP/1.1 200 OK
+            int length = readLine(first);
+            if (length < 12) throw new IOException("Malformed status line");
+            int status = (line[9] - '0') * 100 + (line[10] - '0') * 10 + (line[11] - '0');
+
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean closeAfter = false;
+            while ((length = readLine(in.read())) > 0) {
+                if (startsWithIgnoreCase(line, length, "content-length:")) {
+                    contentLength = Long.parseLong(value(length, "content-length:"));
+                } else if (startsWithIgnoreCase(line, length, "transfer-encoding:")) {
+                    chunked = value(length, "transfer-encoding:").equalsIgnoreCase("chunked");
+                } else if (startsWithIgnoreCase(line, length, "connection:")) {
+                    closeAfter = value(length, "connection:").equalsIgnoreCase("close");
+                }
+            }
+
+            ByteArrayOutputStream body = readBody ? new ByteArrayOutputStream() : null;
+            if (chunked) {
+                long chunk;
+                while ((chunk = Long.parseLong(value(readLine(in.read()), "").split(";")[0], 16)) > 0) {
+                    transfer(chunk, body);
+                    readLine(in.read());
+                }
+                while (readLine(in.read()) > 0) {
+                    // trailers
+                }
+            } else if (contentLength > 0) {
+                transfer(contentLength, body);
+            } else if (contentLength < 0 && status != 204 && status != 304) {
+                // sem tamanho: o corpo vai até o servidor fechar
+                transfer(Long.MAX_VALUE, body);
+                closeAfter = true;
+            }
+
+            if (closeAfter) close();
+            return new HttpResult(status, body == null ? HttpResult.EMPTY : body.toByteArray());
+        }
+
+        private void transfer(long bytes, ByteArrayOutputStream body) throws IOException {
+            byte[] chunk = line;
+            long remaining = bytes;
+            while (remaining > 0) {
+                int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (read < 0) {
+                    if (bytes == Long.MAX_VALUE) return;
+                    throw new EOFException();
+                }
+                if (body != null) body.write(chunk, 0, read);
+                remaining -= read;
+            }
+        }
+
+        // lê até CRLF a partir do byte já lido; devolve o tamanho sem o CRLF
+        private int readLine(int first) throws IOException {
+            int length = 0;
+            int b = first;
+            while (true) {
+                if (b < 0) throw new EOFException();
+                if (b == '\n') break;
+                if (b != '\r') {
+                    if (length == line.length) {
+                        byte[] bigger = new byte[line.length * 2];
+                        System.arraycopy(line, 0, bigger, 0, length);
+                        line = bigger;
+                    }
+                    line[length++] = (byte) b;
+                }
+                b = in.read();
+            }
+            return length;
+        }
+
+        private String value(int length, String header) {
+            return new String(line, header.length(), length - header.length(), StandardCharsets.US_ASCII).trim();
+        }
+
+        private boolean connect() {
+            try {
+                Socket candidate = new Socket();
+                candidate.setTcpNoDelay(true);
+                candidate.setKeepAlive(true);
+                candidate.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+                socket = candidate;
+                in = new BufferedInputStream(candidate.getInputStream(), 8192);
+                out = candidate.getOutputStream();
+                open.incrementAndGet();
+                connects.increment();
+                return true;
+            } catch (IOException e) {
+                connectFailures.increment();
+                return false;
+            }
+        }
+
+        private void close() {
+            if (socket == null) return;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // já está fechando
+            }
+            socket = null;
+            in = null;
+            out = null;
+            open.decrementAndGet();
+        }
+    }
+
+    private static final class StaleConnectionException extends IOException {
+    }
+
+    private static boolean startsWithIgnoreCase(byte[] line, int length, String prefix) {
+        if (length < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(line[i]) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int put(byte[] target, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, target, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,11 @@
+package com.jpdev01.rinha.integration.http;
+
+// status -1 quando a chamada não chegou a ter resposta (conexão, timeout)
+public record HttpResult(int status, byte[] body) {
+
+    static final byte[] EMPTY = new byte[0];
+
+    static HttpResult failed() {
+        return new HttpResult(-1, EMPTY);
+    }
+}
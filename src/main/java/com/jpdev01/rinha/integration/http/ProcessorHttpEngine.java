@@ -0,0 +1,39 @@
+package com.jpdev01.rinha.integration.http;
+
+import com.jpdev01.rinha.state.Processor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+
+// única pilha HTTP de saída: um pool keep-alive por processador, usado para pagamentos e health
+@Component
+public class ProcessorHttpEngine {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+    // conexão de cada pool só para o /service-health
+    public static final int HEALTH_CONNECTIONS = 1;
+
+    @Value("${services.processor-default}")
+    private String processorDefault;
+
+    @Value("${services.processor-fallback}")
+    private String processorFallback;
+
+    @Value("${services.processor-pool-size:32}")
+    private int poolSize;
+
+    private HttpConnectionPool defaultPool;
+    private HttpConnectionPool fallbackPool;
+
+    @PostConstruct
+    public void init() {
+        defaultPool = new HttpConnectionPool("default", URI.create(processorDefault), poolSize, CONNECT_TIMEOUT_MILLIS, HEALTH_CONNECTIONS);
+        fallbackPool = new HttpConnectionPool("fallback", URI.create(processorFallback), poolSize, CONNECT_TIMEOUT_MILLIS, HEALTH_CONNECTIONS);
+    }
+
+    public HttpConnectionPool pool(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultPool : fallbackPool;
+    }
+}
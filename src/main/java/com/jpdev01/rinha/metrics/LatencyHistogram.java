@@ -0,0 +1,80 @@
+package com.jpdev01.rinha.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latência sem lock, no estilo do HdrHistogram: buckets log-lineares
+ * (32 por oitava, ~3% de erro relativo) de ~1µs até ~69s; acima disso tudo cai no último bucket.
+ * O record é um incremento atômico num bucket e uma soma num LongAdder; os contadores são
+ * cumulativos e os intervalos saem da diferença entre dois {@link Snapshot}.
+ */
+public class LatencyHistogram {
+
+    private static final int UNIT_SHIFT = 10; // unidade de ~1µs
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    // maior bit da unidade (1024ns) ainda com buckets próprios: 2^26 unidades = ~69s
+    private static final int MAX_MSB = 25;
+    private static final int BUCKETS = (MAX_MSB - SUB_BUCKET_BITS + 2) * HALF + HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumNanos = new LongAdder();
+
+    public record Snapshot(long[] counts, long count, long sumNanos) {
+
+        static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0);
+
+        public Snapshot minus(Snapshot previous) {
+            long[] delta = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                delta[i] = counts[i] - previous.counts[i];
+            }
+            return new Snapshot(delta, count - previous.count, sumNanos - previous.sumNanos);
+        }
+
+        public long quantileNanos(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return midpoint(i);
+            }
+            return midpoint(BUCKETS - 1);
+        }
+    }
+
+    public void record(long nanos) {
+        counts.getAndIncrement(index(Math.max(0, nanos)));
+        sumNanos.add(nanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sumNanos.sum());
+    }
+
+    static int index(long nanos) {
+        long units = nanos >>> UNIT_SHIFT;
+        if (units < SUB_BUCKETS) return (int) units;
+        int msb = 63 - Long.numberOfLeadingZeros(units);
+        if (msb > MAX_MSB) return BUCKETS - 1;
+        int shift = msb - SUB_BUCKET_BITS + 1;
+        return (shift + 1) * HALF + (int) ((units >>> shift) - HALF);
+    }
+
+    // valor representativo do bucket: o meio do intervalo que ele cobre
+    static long midpoint(int index) {
+        if (index < SUB_BUCKETS) return ((long) index << UNIT_SHIFT) + (1L << (UNIT_SHIFT - 1));
+        int shift = index / HALF - 1;
+        long lower = (long) (HALF + index % HALF) << shift;
+        return (lower << UNIT_SHIFT) + ((1L << shift) << UNIT_SHIFT) / 2;
+    }
+}
@@ -0,0 +1,145 @@
+package com.jpdev01.rinha.metrics;
+
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
+import com.jpdev01.rinha.state.Processor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Latência por etapa do pipeline: accept no controller, espera na fila por lane, chamada ao
+ * processador por processador e resultado, insert no banco e consulta do resumo.
+ * Os quantis publicados são do último intervalo fechado; _count e _sum são cumulativos.
+ */
+@Component
+public class PaymentMetrics {
+
+    public static final class Stage {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private volatile LatencyHistogram.Snapshot lastCumulative = LatencyHistogram.Snapshot.EMPTY;
+        private volatile LatencyHistogram.Snapshot lastInterval = LatencyHistogram.Snapshot.EMPTY;
+
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        public LatencyHistogram.Snapshot cumulative() {
+            return histogram.snapshot();
+        }
+
+        public LatencyHistogram.Snapshot interval() {
+            return lastInterval;
+        }
+
+        void roll() {
+            LatencyHistogram.Snapshot current = histogram.snapshot();
+            lastInterval = current.minus(lastCumulative);
+            lastCumulative = current;
+        }
+    }
+
+    private final Stage accept = new Stage();
+    private final Stage[] queueWait = stages(Lane.values().length);
+    // [processor][0 = falha, 1 = sucesso]
+    private final Stage[][] processorCall = {stages(2), stages(2)};
+    private final Stage dbInsert = new Stage();
+    private final Stage summary = new Stage();
+    private final LongAdder[] duplicates = {new LongAdder(), new LongAdder()};
+    private final LongAdder ingestDuplicates = new LongAdder();
+
+    private final long intervalMillis;
+
+    public PaymentMetrics(@Value("${metrics.interval-seconds:10}") long intervalSeconds) {
+        this.intervalMillis = Math.max(1, intervalSeconds) * 1000;
+        Thread.startVirtualThread(this::runIntervals);
+    }
+
+    public void recordAccept(long nanos) {
+        accept.record(nanos);
+    }
+
+    public void recordQueueWait(Lane lane, long nanos) {
+        queueWait[lane.ordinal()].record(nanos);
+    }
+
+    public void recordProcessorCall(Processor processor, boolean success, long nanos) {
+        processorCall[processor.ordinal()][success ? 1 : 0].record(nanos);
+    }
+
+    public void recordDuplicate(Processor processor) {
+        duplicates[processor.ordinal()].increment();
+    }
+
+    public void recordIngestDuplicate() {
+        ingestDuplicates.increment();
+    }
+
+    public void recordDbInsert(long nanos) {
+        dbInsert.record(nanos);
+    }
+
+    public void recordSummary(long nanos) {
+        summary.record(nanos);
+    }
+
+    public Stage accept() {
+        return accept;
+    }
+
+    public Stage queueWait(Lane lane) {
+        return queueWait[lane.ordinal()];
+    }
+
+    public Stage processorCall(Processor processor, boolean success) {
+        return processorCall[processor.ordinal()][success ? 1 : 0];
+    }
+
+    public long duplicates(Processor processor) {
+        return duplicates[processor.ordinal()].sum();
+    }
+
+    public long ingestDuplicates() {
+        return ingestDuplicates.sum();
+    }
+
+    public Stage dbInsert() {
+        return dbInsert;
+    }
+
+    public Stage summary() {
+        return summary;
+    }
+
+    private void runIntervals() {
+        while (true) {
+            try {
+                Thread.sleep(intervalMillis);
+                forEach(Stage::roll);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void forEach(Consumer<Stage> action) {
+        action.accept(accept);
+        for (Stage stage : queueWait) action.accept(stage);
+        for (Stage[] outcomes : processorCall) {
+            for (Stage stage : outcomes) action.accept(stage);
+        }
+        action.accept(dbInsert);
+        action.accept(summary);
+    }
+
+    private static Stage[] stages(int count) {
+        Stage[] stages = new Stage[count];
+        for (int i = 0; i < count; i++) {
+            stages[i] = new Stage();
+        }
+        return stages;
+    }
+}
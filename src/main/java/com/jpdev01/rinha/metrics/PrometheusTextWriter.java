@@ -0,0 +1,65 @@
+package com.jpdev01.rinha.metrics;
+
+/**
+ * Monta a resposta no formato texto do Prometheus (versão 0.0.4).
+ * Latências saem como summary em segundos: quantis do último intervalo, _sum e _count cumulativos.
+ */
+public class PrometheusTextWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+
+    private final StringBuilder out = new StringBuilder(8192);
+
+    public PrometheusTextWriter header(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    // labels em pares nome/valor: "processor", "default", "outcome", "success"
+    public PrometheusTextWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        labels(labels, null);
+        out.append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusTextWriter summary(String name, PaymentMetrics.Stage stage, String... labels) {
+        LatencyHistogram.Snapshot interval = stage.interval();
+        for (double quantile : QUANTILES) {
+            out.append(name);
+            labels(labels, quantile);
+            // intervalo sem amostras: NaN, como nos summaries do client oficial
+            out.append(' ').append(interval.count() == 0 ? "NaN" : String.valueOf(interval.quantileNanos(quantile) / 1e9)).append('\n');
+        }
+        LatencyHistogram.Snapshot cumulative = stage.cumulative();
+        out.append(name).append("_sum");
+        labels(labels, null);
+        out.append(' ').append(cumulative.sumNanos() / 1e9).append('\n');
+        out.append(name).append("_count");
+        labels(labels, null);
+        out.append(' ').append(cumulative.count()).append('\n');
+        return this;
+    }
+
+    private void labels(String[] labels, Double quantile) {
+        if (labels.length == 0 && quantile == null) return;
+        out.append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) out.append(',');
+            out.append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+        }
+        if (quantile != null) {
+            if (labels.length > 0) out.append(',');
+            out.append("quantile=\"").append(quantile).append('"');
+        }
+        out.append('}');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
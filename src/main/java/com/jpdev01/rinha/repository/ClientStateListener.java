@@ -0,0 +1,125 @@
+package com.jpdev01.rinha.repository;
+
+import com.jpdev01.rinha.state.ClientState;
+import com.jpdev01.rinha.state.DefaultClientState;
+import com.jpdev01.rinha.state.FallbackClientState;
+import jakarta.annotation.PostConstruct;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Recebe as mudanças de estado dos processadores publicadas pelo líder do health check
+ * ({@link ClientStateRepository#CHANNEL}). Usa uma conexão própria, fora do pool do Hikari, presa
+ * no LISTEN; o polling do PaymentHealthCheckService fica só como rede de segurança.
+ * Roda em todas as instâncias: qualquer uma pode deixar de ser líder a qualquer momento.
+ */
+@Component
+public class ClientStateListener {
+
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5000;
+
+    private final DefaultClientState defaultClientState;
+    private final FallbackClientState fallbackClientState;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private volatile boolean listening;
+
+    public ClientStateListener(DefaultClientState defaultClientState, FallbackClientState fallbackClientState) {
+        this.defaultClientState = defaultClientState;
+        this.fallbackClientState = fallbackClientState;
+    }
+
+    @PostConstruct
+    public void init() {
+        Thread.ofVirtual().name("client-state-listener").start(this::run);
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    private void run() {
+        try {
+            listen();
+        } finally {
+            listening = false;
+        }
+    }
+
+    private void listen() {
+        long reconnectDelay = 100;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ClientStateRepository.CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                listening = true;
+                reconnectDelay = 100;
+                System.out.println("Listening for processor state changes");
+
+                while (true) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        try {
+                            apply(notification.getParameter());
+                        } catch (RuntimeException e) {
+                            // payload truncado ou malformado: descarta só esta notificação
+                            System.err.println("Ignoring processor state notification '" + notification.getParameter() + "': " + e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (listening) {
+                    System.err.println("Processor state listener disconnected: " + e.getMessage());
+                }
+                listening = false;
+            }
+
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MILLIS, reconnectDelay * 2);
+        }
+    }
+
+    private void apply(String payload) {
+        String[] fields = payload.split(",");
+        if (fields.length != 4) return;
+
+        ClientState state = switch (fields[0]) {
+            case "default" -> defaultClientState;
+            case "fallback" -> fallbackClientState;
+            default -> throw new IllegalArgumentException("unknown processor " + fields[0]);
+        };
+        // tudo parseado antes de mexer no estado: payload ruim não deixa o estado pela metade
+        boolean healthy = Boolean.parseBoolean(fields[1]);
+        int minResponseTime = Integer.parseInt(fields[2]);
+        long lastChecked = Long.parseLong(fields[3]);
+        // notificação atrasada não sobrescreve o que o polling já trouxe
+        if (lastChecked < state.lastHealthCheckRun()) return;
+
+        state.setHealthy(healthy);
+        state.setMinResponseTime(minResponseTime);
+        state.setLastHealthCheckRun(lastChecked);
+    }
+}
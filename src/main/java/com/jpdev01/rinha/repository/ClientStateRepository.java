@@ -6,15 +6,21 @@ import com.jpdev01.rinha.state.FallbackClientState;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Map;
 
 @Repository
 public class ClientStateRepository {
 
+    // canal do LISTEN/NOTIFY; payload: processor,healthy,minResponseTime,lastChecked
+    public static final String CHANNEL = "payment_processors_state";
+
     private final JdbcTemplate jdbcTemplate;
+    private final R2dbcClient r2dbcClient;
 
-    public ClientStateRepository(JdbcTemplate jdbcTemplate) {
+    public ClientStateRepository(JdbcTemplate jdbcTemplate, R2dbcClient r2dbcClient) {
         this.jdbcTemplate = jdbcTemplate;
+        this.r2dbcClient = r2dbcClient;
     }
 
     public void updateClientState(ClientState client) {
@@ -25,16 +31,33 @@ public class ClientStateRepository {
             sql = "UPDATE payment_processors_state SET fallback_healthy = ?, fallback_min_response_time_ms = ?, fallback_last_checked = ?";
         }
 
-        int affectedRows = jdbcTemplate.update(sql, ps -> {
-            ps.setBoolean(1, client.health());
-            ps.setInt(2, client.getMinResponseTime());
-            ps.setLong(3, client.lastHealthCheckRun());
-        });
+        long affectedRows = update(sql, client.health(), client.getMinResponseTime(), client.lastHealthCheckRun());
         if (affectedRows == 0) {
-            jdbcTemplate.update("INSERT INTO payment_processors_state (default_healthy, default_min_response_time_ms, default_last_checked, fallback_healthy, fallback_min_response_time_ms, fallback_last_checked) VALUES (?, ?, ?, ?, ?, ?)",
+            update("INSERT INTO payment_processors_state (default_healthy, default_min_response_time_ms, default_last_checked, fallback_healthy, fallback_min_response_time_ms, fallback_last_checked) VALUES (?, ?, ?, ?, ?, ?)",
                     client.health(), client.getMinResponseTime(), client.lastHealthCheckRun(),
                     client.health(), client.getMinResponseTime(), client.lastHealthCheckRun());
         }
+        notifyChange(client);
+    }
+
+    // as outras instâncias recebem pela conexão do ClientStateListener, sem esperar o polling
+    private void notifyChange(ClientState client) {
+        String payload = (client instanceof DefaultClientState ? "default" : "fallback") + ","
+                + client.health() + "," + client.getMinResponseTime() + "," + client.lastHealthCheckRun();
+        if (r2dbcClient.isEnabled()) {
+            r2dbcClient.query("SELECT pg_notify(?, ?)", row -> Boolean.TRUE, CHANNEL, payload);
+            return;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+    }
+
+    // o líder grava o início da chamada antes de fazê-la: quem assumir depois respeita o intervalo
+    // mesmo que o líder anterior tenha caído com a chamada em andamento
+    public void claimProbe(ClientState client, long startedAt) {
+        String sql = client instanceof DefaultClientState
+                ? "UPDATE payment_processors_state SET default_last_checked = ?"
+                : "UPDATE payment_processors_state SET fallback_last_checked = ?";
+        update(sql, startedAt);
     }
 
     public void insertIfNecessary(DefaultClientState defaultClientState, FallbackClientState fallbackClientState) {
@@ -48,7 +71,7 @@ public class ClientStateRepository {
                     SELECT 1 FROM payment_processors_state
                 )
                 """;
-        jdbcTemplate.update(sql,
+        update(sql,
                 defaultClientState.health(), defaultClientState.getMinResponseTime(), defaultClientState.lastHealthCheckRun(),
                 fallbackClientState.health(), fallbackClientState.getMinResponseTime(), fallbackClientState.lastHealthCheckRun());
     }
@@ -65,7 +88,19 @@ public class ClientStateRepository {
         }
     }
 
+    private long update(String sql, Object... args) {
+        return r2dbcClient.isEnabled() ? r2dbcClient.update(sql, args) : jdbcTemplate.update(sql, args);
+    }
+
     private Map executeGet(String sql, long lastChecked) {
+        if (r2dbcClient.isEnabled()) {
+            List<Map> rows = r2dbcClient.query(sql, row -> Map.of(
+                    "healthy", row.get("healthy", Boolean.class),
+                    "min_response_time", row.get("min_response_time", Integer.class),
+                    "last_checked", row.get("last_checked", Long.class)
+            ), lastChecked);
+            return rows.isEmpty() ? Map.of() : rows.get(0);
+        }
         return jdbcTemplate.query(sql, ps -> {
             ps.setLong(1, lastChecked);
         }, rs -> {
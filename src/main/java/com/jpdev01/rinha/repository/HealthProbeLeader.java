@@ -0,0 +1,126 @@
+package com.jpdev01.rinha.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Eleição da instância que chama o /service-health, por advisory lock de sessão no Postgres.
+ * Cada instância elegível tenta pg_try_advisory_lock a cada segundo numa conexão própria, fora do
+ * pool do Hikari; quem consegue fica líder enquanto a conexão viver. Processo que morre ou reinicia
+ * derruba a conexão e o lock é liberado na hora, então outra instância assume no próximo segundo.
+ * O líder que percebe que travou (pausa longa) chama {@link #resign()} e espera um tempo antes de
+ * voltar a disputar. services.execute-health-check=false tira a instância da disputa.
+ */
+@Component
+public class HealthProbeLeader {
+
+    // "rinha" em ASCII: chave fixa, as instâncias só precisam concordar nela
+    private static final long LOCK_KEY = 0x72696e6861L;
+    private static final long ELECTION_INTERVAL_MILLIS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5000;
+    private static final long RESIGN_COOLDOWN_MILLIS = 10_000;
+
+    @Value("${services.execute-health-check:true}")
+    private boolean eligible;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private volatile boolean leader;
+    private volatile boolean resignRequested;
+    private volatile Thread election;
+
+    @PostConstruct
+    public void init() {
+        if (!eligible) return;
+        election = Thread.ofVirtual().name("health-probe-election").start(this::run);
+    }
+
+    @PreDestroy
+    public void close() {
+        // a conexão fecha com a thread e o lock sai junto: o peer assume sem esperar timeout
+        Thread current = election;
+        if (current != null) current.interrupt();
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    // o líder para de chamar já; o lock é devolvido no próximo ciclo da eleição
+    public void resign() {
+        if (!leader) return;
+        leader = false;
+        resignRequested = true;
+    }
+
+    private void run() {
+        long reconnectDelay = 100;
+        long resignedAt = Long.MIN_VALUE / 2;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                reconnectDelay = 100;
+                boolean holding = false;
+                while (true) {
+                    if (resignRequested) {
+                        resignRequested = false;
+                        if (holding) {
+                            execute(connection, "SELECT pg_advisory_unlock(?)");
+                            holding = false;
+                            resignedAt = System.currentTimeMillis();
+                            System.out.println("Resigned health probe leadership");
+                        }
+                    }
+                    if (!holding && System.currentTimeMillis() - resignedAt >= RESIGN_COOLDOWN_MILLIS) {
+                        holding = execute(connection, "SELECT pg_try_advisory_lock(?)");
+                        if (holding) {
+                            leader = true;
+                            System.out.println("Elected health probe leader");
+                        }
+                    } else if (holding && !connection.isValid(1)) {
+                        throw new SQLException("Leader connection is no longer valid");
+                    }
+                    Thread.sleep(ELECTION_INTERVAL_MILLIS);
+                }
+            } catch (SQLException e) {
+                if (leader) {
+                    System.err.println("Lost health probe leadership: " + e.getMessage());
+                }
+                leader = false;
+            } catch (InterruptedException e) {
+                leader = false;
+                return;
+            }
+
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MILLIS, reconnectDelay * 2);
+        }
+    }
+
+    private static boolean execute(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.jpdev01.rinha.repository;
+
+import com.jpdev01.rinha.dto.PaymentBucketDTO;
+import com.jpdev01.rinha.dto.PaymentProcessorSummaryDTO;
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import com.jpdev01.rinha.entity.PaymentEntity;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Pagamentos confirmados em arquivos mapeados em memória num volume compartilhado pelas instâncias,
+ * no lugar do Postgres quando persistence.mode=mmap. Cada instância só escreve nos próprios
+ * segmentos (persistence.mmap.instance), então não há lock entre processos: o escritor publica
+ * cada lote por um seqlock no cabeçalho do segmento e quem lê repete a leitura se o pegou no meio.
+ * O segmento tem registros de 32 bytes append-only (correlationId, centavos, requestedAt e
+ * processador) e um índice por segundo com contagem e soma de cada processador, cobrindo
+ * INDEX_SECONDS em torno da criação; o resumo soma o índice de todos os segmentos de todas as
+ * instâncias e só varre registros de segmento com pagamento fora dessa janela.
+ * O purge incrementa a geração no store.ctl; segmento de geração antiga é ignorado na leitura e
+ * apagado pelo dono na próxima escrita.
+ * Cada geração tem uma tabela de correlationIds (ids-geração.idx) compartilhada pelas instâncias,
+ * com os slots disputados por CAS no próprio mapeamento: pagamento já gravado por qualquer instância
+ * é descartado, como o ON CONFLICT (correlation_id) DO NOTHING do modo jdbc.
+ */
+@Component
+public class MappedPaymentStore {
+
+    private static final long MAGIC = 0x726e6861706d6d31L;
+    private static final String SUFFIX = ".payments";
+    private static final String CONTROL_FILE = "store.ctl";
+    private static final String IDS_SUFFIX = ".idx";
+
+    // cabeçalho: magic, geração, segundo base do índice, versão do seqlock, registros, fora da janela
+    private static final int GENERATION = 8;
+    private static final int BASE_SECOND = 16;
+    private static final int VERSION = 24;
+    private static final int COUNT = 32;
+    private static final int OUTSIDE = 40;
+    private static final int HEADER_BYTES = 64;
+
+    // por segundo: contagem e soma do default, contagem e soma do fallback
+    private static final int INDEX_SECONDS = 1 << 16; // ~18h
+    private static final int SLOT_BYTES = 32;
+    private static final int RECORD_BYTES = 32;
+    private static final int RECORDS_PER_SEGMENT = 1 << 18;
+    private static final int INDEX_OFFSET = HEADER_BYTES;
+    private static final int RECORDS_OFFSET = INDEX_OFFSET + INDEX_SECONDS * SLOT_BYTES;
+    private static final int SEGMENT_BYTES = RECORDS_OFFSET + RECORDS_PER_SEGMENT * RECORD_BYTES; // ~10 MB, esparso
+
+    // tabela de ids: estado, msb e lsb por slot; ~24 MB esparso, sondagem linear
+    private static final int ID_SLOTS = 1 << 20;
+    private static final int ID_SLOT_BYTES = 24;
+    private static final int MAX_PROBES = 1024;
+
+    // versão ímpar há mais tempo que isso é escritor que caiu no meio do lote
+    private static final long STALE_WRITE_NANOS = 1_000_000_000;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    @Value("${persistence.mode:jdbc}")
+    private String mode;
+
+    @Value("${persistence.mmap.dir:}")
+    private String dir;
+
+    @Value("${persistence.mmap.instance:}")
+    private String instance;
+
+    private boolean enabled;
+    private MappedByteBuffer control;
+    // todos os segmentos do diretório, de qualquer instância, por arquivo
+    private final Map<Path, Segment> segments = new ConcurrentHashMap<>();
+    // os desta instância, do mais antigo para o ativo; só mexidos dentro do synchronized
+    private final List<Segment> own = new ArrayList<>();
+    private IdTable ids;
+    private long nextSeq = 1;
+
+    @PostConstruct
+    public void init() {
+        enabled = "mmap".equalsIgnoreCase(mode);
+        if (!enabled) return;
+        if (dir == null || dir.isBlank()) {
+            throw new IllegalStateException("persistence.mode=mmap requires persistence.mmap.dir");
+        }
+        if (instance == null || instance.isBlank()) {
+            instance = System.getenv().getOrDefault("HOSTNAME", "local");
+        }
+        try {
+            Files.createDirectories(Path.of(dir));
+            try (FileChannel channel = FileChannel.open(Path.of(dir, CONTROL_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                control = channel.map(FileChannel.MapMode.READ_WRITE, 0, 8);
+                control.order(ByteOrder.nativeOrder());
+            }
+            synchronized (this) {
+                reopenOwn();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open payment store at " + dir, e);
+        }
+        System.out.println("Mapped payment store at " + dir + " as " + instance + ", generation " + generation());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void append(List<PaymentEntity> entities) {
+        Segment segment = active();
+        IdTable ids = ids(segment.generation());
+        segment.beginWrite();
+        try {
+            for (PaymentEntity entity : entities) {
+                if (!ids.add(entity.getPayment().correlationIdMsb(), entity.getPayment().correlationIdLsb())) continue;
+                if (segment.count() == RECORDS_PER_SEGMENT) {
+                    segment.endWrite();
+                    segment = rotate();
+                    segment.beginWrite();
+                }
+                segment.append(entity);
+            }
+        } finally {
+            segment.endWrite();
+        }
+    }
+
+    public PaymentSummaryResponseDTO summary(long lo, long hi) {
+        long generation = generation();
+        long[] totals = new long[4];
+        for (Segment segment : refresh()) {
+            if (segment.generation() == generation) segment.sum(lo, hi, totals);
+        }
+        return new PaymentSummaryResponseDTO(
+                new PaymentProcessorSummaryDTO(totals[0], totals[1], true),
+                new PaymentProcessorSummaryDTO(totals[2], totals[3], false));
+    }
+
+    // só os segmentos desta instância na geração atual; um mesmo segundo pode vir de mais de um segmento
+    public synchronized List<PaymentBucketDTO> ownBuckets() {
+        long generation = generation();
+        List<PaymentBucketDTO> buckets = new ArrayList<>();
+        for (Segment segment : own) {
+            if (segment.generation() == generation) segment.buckets(buckets);
+        }
+        return buckets;
+    }
+
+    // vale para as duas instâncias: a outra percebe a geração nova na próxima escrita
+    public synchronized void deleteAll() {
+        LONGS.getAndAdd(control, 0, 1L);
+        active();
+    }
+
+    private long generation() {
+        return (long) LONGS.getVolatile(control, 0);
+    }
+
+    // segmento ativo da geração atual; depois de um purge, apaga os próprios arquivos antigos
+    private Segment active() {
+        long generation = generation();
+        if (!own.isEmpty() && own.get(0).generation() == generation) {
+            return own.get(own.size() - 1);
+        }
+        for (Segment segment : own) {
+            segments.remove(segment.path);
+            delete(segment.path);
+        }
+        own.clear();
+        return rotate();
+    }
+
+    private Segment rotate() {
+        Path path = Path.of(dir, String.format("%s-%020d%s", instance, nextSeq++, SUFFIX));
+        try {
+            Segment segment = Segment.create(path, generation());
+            own.add(segment);
+            segments.put(path, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create payment store segment " + path, e);
+        }
+    }
+
+    // a tabela da geração do segmento; a primeira instância a abrir a de uma geração nova apaga as antigas
+    private IdTable ids(long generation) {
+        if (ids != null && ids.generation == generation) return ids;
+        Path path = Path.of(dir, String.format("ids-%020d%s", generation, IDS_SUFFIX));
+        try {
+            ids = IdTable.open(path, generation);
+            try (Stream<Path> list = Files.list(Path.of(dir))) {
+                list.filter(old -> old.getFileName().toString().endsWith(IDS_SUFFIX) && old.compareTo(path) < 0)
+                        .forEach(MappedPaymentStore::delete);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open payment id table " + path, e);
+        }
+        return ids;
+    }
+
+    // depois de um restart a instância continua nos próprios segmentos
+    private void reopenOwn() throws IOException {
+        String prefix = instance + "-";
+        for (Path path : list()) {
+            String name = path.getFileName().toString();
+            if (!name.startsWith(prefix)) continue;
+            String seq = name.substring(prefix.length(), name.length() - SUFFIX.length());
+            if (seq.isEmpty() || !seq.chars().allMatch(Character::isDigit)) continue;
+            Segment segment = Segment.open(path, FileChannel.MapMode.READ_WRITE);
+            if (segment == null) continue;
+            segment.recover();
+            own.add(segment);
+            segments.put(path, segment);
+            nextSeq = Math.max(nextSeq, Long.parseLong(seq) + 1);
+        }
+    }
+
+    // mapeia segmentos novos das outras instâncias e esquece os apagados
+    private List<Segment> refresh() {
+        List<Path> paths;
+        try {
+            paths = list();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list payment store at " + dir, e);
+        }
+        Set<Path> present = new HashSet<>(paths);
+        segments.keySet().removeIf(path -> !present.contains(path));
+
+        List<Segment> result = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            Segment segment = segments.get(path);
+            if (segment == null) {
+                try {
+                    segment = Segment.open(path, FileChannel.MapMode.READ_ONLY);
+                } catch (NoSuchFileException e) {
+                    continue;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot map payment store segment " + path, e);
+                }
+                // ainda sendo criado pela outra instância: entra na próxima leitura
+                if (segment == null) continue;
+                segments.put(path, segment);
+            }
+            result.add(segment);
+        }
+        return result;
+    }
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> list = Files.list(Path.of(dir))) {
+            return list.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Error deleting payment store file " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static final class IdTable {
+
+        private static final long EMPTY = 0;
+        private static final long CLAIMING = 1;
+        private static final long READY = 2;
+
+        private final long generation;
+        private final MappedByteBuffer buffer;
+
+        private IdTable(long generation, MappedByteBuffer buffer) {
+            this.generation = generation;
+            this.buffer = buffer;
+            buffer.order(ByteOrder.nativeOrder());
+        }
+
+        static IdTable open(Path path, long generation) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new IdTable(generation, channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) ID_SLOTS * ID_SLOT_BYTES));
+            }
+        }
+
+        // false quando alguma instância já gravou o id. O slot é tomado antes do registro ser escrito:
+        // uma queda exatamente entre os dois perde o pagamento, como um commit que não chegou ao banco
+        boolean add(long msb, long lsb) {
+            int slot = (int) (hash(msb, lsb) & (ID_SLOTS - 1));
+            for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & (ID_SLOTS - 1)) {
+                int offset = slot * ID_SLOT_BYTES;
+                long state = (long) LONGS.getAcquire(buffer, offset);
+                if (state == EMPTY) {
+                    if (LONGS.compareAndSet(buffer, offset, EMPTY, CLAIMING)) {
+                        buffer.putLong(offset + 8, msb);
+                        buffer.putLong(offset + 16, lsb);
+                        LONGS.setRelease(buffer, offset, READY);
+                        return true;
+                    }
+                    state = (long) LONGS.getAcquire(buffer, offset);
+                }
+                // a outra instância está gravando este slot; se ela cair no meio, o slot fica para trás
+                long waitingSince = System.nanoTime();
+                while (state == CLAIMING && System.nanoTime() - waitingSince < STALE_WRITE_NANOS) {
+                    Thread.onSpinWait();
+                    state = (long) LONGS.getAcquire(buffer, offset);
+                }
+                if (state == READY && buffer.getLong(offset + 8) == msb && buffer.getLong(offset + 16) == lsb) {
+                    return false;
+                }
+            }
+            // tabela saturada nessa região: grava sem dedup em vez de perder o pagamento
+            return true;
+        }
+
+        private static long hash(long msb, long lsb) {
+            long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+            h ^= h >>> 32;
+            h *= 0xBF58476D1CE4E5B9L;
+            return h ^ h >>> 29;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+            // getLong/putLong na mesma ordem do LONGS: o seqlock e o resto do cabeçalho leem igual
+            buffer.order(ByteOrder.nativeOrder());
+        }
+
+        static Segment create(Path path, long generation) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Segment segment = new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES));
+                segment.buffer.putLong(GENERATION, generation);
+                // janela do índice centrada na criação do segmento
+                segment.buffer.putLong(BASE_SECOND, System.currentTimeMillis() / 1000 - INDEX_SECONDS / 2);
+                // o magic por último: quem lê ignora o arquivo até aqui
+                LONGS.setRelease(segment.buffer, 0, MAGIC);
+                return segment;
+            }
+        }
+
+        // null enquanto o arquivo não tem o tamanho todo ou o cabeçalho
+        static Segment open(Path path, FileChannel.MapMode mode) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, mode == FileChannel.MapMode.READ_ONLY
+                    ? new StandardOpenOption[]{StandardOpenOption.READ}
+                    : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE})) {
+                if (channel.size() < SEGMENT_BYTES) return null;
+                Segment segment = new Segment(path, channel.map(mode, 0, SEGMENT_BYTES));
+                return (long) LONGS.getAcquire(segment.buffer, 0) == MAGIC ? segment : null;
+            }
+        }
+
+        long generation() {
+            return buffer.getLong(GENERATION);
+        }
+
+        int count() {
+            return (int) buffer.getLong(COUNT);
+        }
+
+        // versão ímpar: lote em andamento; a versão só é lida e escrita pelo LONGS
+        void beginWrite() {
+            LONGS.setVolatile(buffer, VERSION, version() + 1);
+        }
+
+        void endWrite() {
+            LONGS.setRelease(buffer, VERSION, version() + 1);
+        }
+
+        long version() {
+            return (long) LONGS.getVolatile(buffer, VERSION);
+        }
+
+        // queda no meio de um lote: fecha a versão; no máximo o último registro fica só no índice
+        void recover() {
+            if ((version() & 1) != 0) endWrite();
+        }
+
+        void append(PaymentEntity entity) {
+            int count = count();
+            int offset = RECORDS_OFFSET + count * RECORD_BYTES;
+            long requestedAt = entity.getRequestedAt();
+            boolean processedAtDefault = entity.isProcessedAtDefault();
+            buffer.putLong(offset, entity.getPayment().correlationIdMsb());
+            buffer.putLong(offset + 8, entity.getPayment().correlationIdLsb());
+            buffer.putLong(offset + 16, entity.getAmountCents());
+            buffer.putLong(offset + 24, requestedAt << 1 | (processedAtDefault ? 1 : 0));
+
+            long second = requestedAt - buffer.getLong(BASE_SECOND);
+            if (second >= 0 && second < INDEX_SECONDS) {
+                int slot = INDEX_OFFSET + (int) second * SLOT_BYTES + (processedAtDefault ? 0 : 16);
+                buffer.putLong(slot, buffer.getLong(slot) + 1);
+                buffer.putLong(slot + 8, buffer.getLong(slot + 8) + entity.getAmountCents());
+            } else {
+                buffer.putLong(OUTSIDE, buffer.getLong(OUTSIDE) + 1);
+            }
+            buffer.putLong(COUNT, count + 1);
+        }
+
+        // sem seqlock: só o dono chama, dentro do synchronized que também faz o append
+        void buckets(List<PaymentBucketDTO> buckets) {
+            long base = buffer.getLong(BASE_SECOND);
+            for (int second = 0; second < INDEX_SECONDS; second++) {
+                int slot = INDEX_OFFSET + second * SLOT_BYTES;
+                long defaultCount = buffer.getLong(slot);
+                long fallbackCount = buffer.getLong(slot + 16);
+                if (defaultCount > 0) buckets.add(new PaymentBucketDTO(base + second, true, defaultCount, buffer.getLong(slot + 8)));
+                if (fallbackCount > 0) buckets.add(new PaymentBucketDTO(base + second, false, fallbackCount, buffer.getLong(slot + 24)));
+            }
+            if (buffer.getLong(OUTSIDE) == 0) return;
+            // o que ficou fora da janela do índice só está nos registros
+            int count = count();
+            for (int i = 0; i < count; i++) {
+                int offset = RECORDS_OFFSET + i * RECORD_BYTES;
+                long packed = buffer.getLong(offset + 24);
+                long requestedAt = packed >> 1;
+                if (requestedAt >= base && requestedAt < base + INDEX_SECONDS) continue;
+                buckets.add(new PaymentBucketDTO(requestedAt, (packed & 1) != 0, 1, buffer.getLong(offset + 16)));
+            }
+        }
+
+        // totals: contagem e soma do default, contagem e soma do fallback
+        void sum(long lo, long hi, long[] totals) {
+            long[] partial = new long[4];
+            int count;
+            boolean scan;
+            long waitingSince = 0;
+            while (true) {
+                long version = (long) LONGS.getAcquire(buffer, VERSION);
+                if ((version & 1) != 0) {
+                    if (waitingSince == 0) waitingSince = System.nanoTime();
+                    if (System.nanoTime() - waitingSince < STALE_WRITE_NANOS) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                }
+                count = count();
+                long base = buffer.getLong(BASE_SECOND);
+                scan = buffer.getLong(OUTSIDE) > 0 && (lo < base || hi >= base + INDEX_SECONDS);
+                partial[0] = partial[1] = partial[2] = partial[3] = 0;
+                if (!scan) {
+                    long from = Math.max(lo, base) - base;
+                    long to = Math.min(hi, base + INDEX_SECONDS - 1) - base;
+                    for (long second = from; second <= to; second++) {
+                        int slot = INDEX_OFFSET + (int) second * SLOT_BYTES;
+                        partial[0] += buffer.getLong(slot);
+                        partial[1] += buffer.getLong(slot + 8);
+                        partial[2] += buffer.getLong(slot + 16);
+                        partial[3] += buffer.getLong(slot + 24);
+                    }
+                }
+                VarHandle.acquireFence();
+                if ((long) LONGS.getAcquire(buffer, VERSION) == version) break;
+            }
+
+            // registros abaixo de count não mudam mais: a varredura não precisa do seqlock
+            if (scan) {
+                for (int i = 0; i < count; i++) {
+                    int offset = RECORDS_OFFSET + i * RECORD_BYTES;
+                    long packed = buffer.getLong(offset + 24);
+                    long requestedAt = packed >> 1;
+                    if (requestedAt < lo || requestedAt > hi) continue;
+                    int index = (packed & 1) != 0 ? 0 : 2;
+                    partial[index]++;
+                    partial[index + 1] += buffer.getLong(offset + 16);
+                }
+            }
+            for (int i = 0; i < 4; i++) {
+                totals[i] += partial[i];
+            }
+        }
+    }
+}
@@ -1,54 +1,146 @@
 package com.jpdev01.rinha.repository;
 
+import com.jpdev01.rinha.Utils;
+import com.jpdev01.rinha.dto.PaymentBucketDTO;
 import com.jpdev01.rinha.dto.PaymentProcessorSummaryDTO;
 import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
 import com.jpdev01.rinha.entity.PaymentEntity;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Repository
 public class PaymentRepository {
 
+    private static final long SECONDS_PER_BUCKET = 60;
+
     private final JdbcTemplate jdbcTemplate;
+    private final PaymentMetrics paymentMetrics;
+    private final R2dbcClient r2dbcClient;
+    private final MappedPaymentStore mappedPaymentStore;
+    private final Map<Integer, String> insertBatchSqlCache = new ConcurrentHashMap<>();
+
+    // vai em cada linha de payments; vazio usa o HOSTNAME, como o persistence.mmap.instance
+    @Value("${services.instance:}")
+    private String instance;
 
-    public PaymentRepository(JdbcTemplate jdbcTemplate) {
+    public PaymentRepository(JdbcTemplate jdbcTemplate, PaymentMetrics paymentMetrics, R2dbcClient r2dbcClient, MappedPaymentStore mappedPaymentStore) {
         this.jdbcTemplate = jdbcTemplate;
+        this.paymentMetrics = paymentMetrics;
+        this.r2dbcClient = r2dbcClient;
+        this.mappedPaymentStore = mappedPaymentStore;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (instance == null || instance.isBlank()) {
+            instance = System.getenv().getOrDefault("HOSTNAME", "local");
+        }
     }
 
+    // o que esta instância gravou, por segundo; semeia o resumo em memória depois de um restart
+    public List<PaymentBucketDTO> localBuckets() {
+        if (mappedPaymentStore.isEnabled()) {
+            return mappedPaymentStore.ownBuckets();
+        }
+
+        String sql = """
+            SELECT requested_at, processed_at_default, COUNT(*) AS total, SUM(amount)::BIGINT AS total_amount
+            FROM payments
+            WHERE instance = ?
+            GROUP BY requested_at, processed_at_default
+            """;
+        return r2dbcClient.isEnabled()
+                ? r2dbcClient.query(
+                        sql,
+                        row -> new PaymentBucketDTO(
+                                row.get("requested_at", Long.class),
+                                row.get("processed_at_default", Boolean.class),
+                                row.get("total", Long.class),
+                                row.get("total_amount", Long.class)
+                        ),
+                        instance)
+                : jdbcTemplate.query(
+                        sql,
+                        (rs, rowNum) -> new PaymentBucketDTO(
+                                rs.getLong("requested_at"),
+                                rs.getBoolean("processed_at_default"),
+                                rs.getLong("total"),
+                                rs.getLong("total_amount")
+                        ),
+                        instance
+                );
+    }
+
+    // minutos inteiros saem do payments_rollup; só as pontas do intervalo leem linhas de payments
     public PaymentSummaryResponseDTO summary(Instant from, Instant to) {
+        if (mappedPaymentStore.isEnabled()) {
+            return mappedPaymentStore.summary(Utils.fromSecond(from), Utils.toSecond(to));
+        }
+
         String sql = """
             SELECT
-                COUNT(*) AS total,
-                SUM(amount) AS total_amount,
-                processed_at_default
-            FROM payments
-            WHERE requested_at BETWEEN ? AND ?
+                processed_at_default,
+                SUM(total)::BIGINT AS total,
+                SUM(amount)::BIGINT AS total_amount
+            FROM (
+                SELECT processed_at_default, total_requests AS total, total_amount AS amount
+                FROM payments_rollup
+                WHERE minute BETWEEN ? AND ?
+                UNION ALL
+                SELECT processed_at_default, COUNT(*) AS total, COALESCE(SUM(amount), 0) AS amount
+                FROM payments
+                WHERE requested_at BETWEEN ? AND ? OR requested_at BETWEEN ? AND ?
+                GROUP BY processed_at_default
+            ) parts
             GROUP BY processed_at_default
             """;
 
-        List<PaymentProcessorSummaryDTO> list = jdbcTemplate.query(
-                sql,
-                (rs, rowNum) -> new PaymentProcessorSummaryDTO(
-                        rs.getInt("total"),
-                        rs.getBigDecimal("total_amount"),
-                        rs.getBoolean("processed_at_default")
-                ),
-                Timestamp.from(from),
-                Timestamp.from(to)
-        );
+        long lo = Utils.fromSecond(from);
+        long hi = Utils.toSecond(to);
+        long firstMinute = Math.ceilDiv(lo, SECONDS_PER_BUCKET);
+        long lastMinute = hi == Long.MAX_VALUE ? hi / SECONDS_PER_BUCKET : Math.floorDiv(hi + 1, SECONDS_PER_BUCKET) - 1;
+        Object[] args;
+        if (firstMinute > lastMinute) {
+            // intervalo menor que um minuto inteiro: tudo vem de payments
+            args = new Object[]{1, 0, lo, hi, 1, 0};
+        } else {
+            // sem "to" o último minuto já cobre até Long.MAX_VALUE e a ponta de cima fica vazia
+            long upperEdge = hi == Long.MAX_VALUE ? 1 : (lastMinute + 1) * SECONDS_PER_BUCKET;
+            args = new Object[]{firstMinute, lastMinute,
+                    lo, firstMinute * SECONDS_PER_BUCKET - 1,
+                    upperEdge, hi == Long.MAX_VALUE ? 0 : hi};
+        }
+
+        List<PaymentProcessorSummaryDTO> list = r2dbcClient.isEnabled()
+                ? r2dbcClient.query(
+                        sql,
+                        row -> new PaymentProcessorSummaryDTO(
+                                row.get("total", Long.class),
+                                row.get("total_amount", Long.class),
+                                row.get("processed_at_default", Boolean.class)
+                        ),
+                        args)
+                : jdbcTemplate.query(
+                        sql,
+                        (rs, rowNum) -> new PaymentProcessorSummaryDTO(
+                                rs.getLong("total"),
+                                rs.getLong("total_amount"),
+                                rs.getBoolean("processed_at_default")
+                        ),
+                        args
+                );
 
         // valores padrão se não houver registros
-        PaymentProcessorSummaryDTO defaultSummary = new PaymentProcessorSummaryDTO(0, BigDecimal.ZERO, true);
-        PaymentProcessorSummaryDTO fallbackSummary = new PaymentProcessorSummaryDTO(0, BigDecimal.ZERO, false);
+        PaymentProcessorSummaryDTO defaultSummary = new PaymentProcessorSummaryDTO(0, 0, true);
+        PaymentProcessorSummaryDTO fallbackSummary = new PaymentProcessorSummaryDTO(0, 0, false);
 
         for (PaymentProcessorSummaryDTO dto : list) {
             if (Boolean.TRUE.equals(dto.processedAtDefault())) {
@@ -62,55 +154,82 @@ public class PaymentRepository {
     }
 
     public void insertBatch(List<PaymentEntity> entities) {
-        String sql = """
-            INSERT INTO payments (correlation_id, amount, requested_at, processed_at_default)
-            VALUES (?, ?, ?, ?)
-            """;
+        if (entities.isEmpty()) return;
 
         long start = System.nanoTime();
-        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                PaymentEntity entity = entities.get(i);
-                ps.setObject(1, entity.getCorrelationId());
-                ps.setBigDecimal(2, entity.getAmount());
-                ps.setTimestamp(3, Timestamp.from(entity.getRequestedAt()));
-                ps.setBoolean(4, entity.isProcessedAtDefault());
+        if (mappedPaymentStore.isEnabled()) {
+            mappedPaymentStore.append(entities);
+            paymentMetrics.recordDbInsert(System.nanoTime() - start);
+            return;
+        }
+
+        String sql = insertBatchSql(entities.size());
+        if (r2dbcClient.isEnabled()) {
+            Object[] args = new Object[entities.size() * 5];
+            int index = 0;
+            for (PaymentEntity entity : entities) {
+                args[index++] = entity.getCorrelationId();
+                args[index++] = entity.getAmountCents();
+                args[index++] = entity.getRequestedAt();
+                args[index++] = entity.isProcessedAtDefault();
+                args[index++] = instance;
             }
+            r2dbcClient.update(sql, args);
+        } else {
+            jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (PaymentEntity entity : entities) {
+                    ps.setObject(index++, entity.getCorrelationId());
+                    ps.setLong(index++, entity.getAmountCents());
+                    ps.setLong(index++, entity.getRequestedAt());
+                    ps.setBoolean(index++, entity.isProcessedAtDefault());
+                    ps.setString(index++, instance);
+                }
+            });
+        }
+
+        paymentMetrics.recordDbInsert(System.nanoTime() - start);
+    }
 
-            @Override
-            public int getBatchSize() {
-                return entities.size();
+    // um único statement por lote: INSERT multi-row e, no mesmo CTE, o acumulado por minuto
+    // só das linhas que entraram de fato (conflito não soma); o texto fica em cache por tamanho de lote
+    private String insertBatchSql(int size) {
+        return insertBatchSqlCache.computeIfAbsent(size, n -> {
+            StringBuilder sql = new StringBuilder("WITH inserted AS (INSERT INTO payments (correlation_id, amount, requested_at, processed_at_default, instance) VALUES ");
+            for (int i = 0; i < n; i++) {
+                if (i > 0) sql.append(',');
+                sql.append("(?, ?, ?, ?, ?)");
             }
+            return sql.append("""
+                     ON CONFLICT (correlation_id) DO NOTHING
+                    RETURNING requested_at, amount, processed_at_default)
+                    INSERT INTO payments_rollup (minute, processed_at_default, total_requests, total_amount)
+                    SELECT requested_at / %d, processed_at_default, COUNT(*), SUM(amount)
+                    FROM inserted
+                    GROUP BY 1, 2
+                    ORDER BY 1, 2
+                    ON CONFLICT (minute, processed_at_default) DO UPDATE SET
+                        total_requests = payments_rollup.total_requests + EXCLUDED.total_requests,
+                        total_amount = payments_rollup.total_amount + EXCLUDED.total_amount
+                    """.formatted(SECONDS_PER_BUCKET)).toString();
         });
-
-        long duration = System.nanoTime() - start;
-        if (duration > 2_000_000) {
-            System.err.println("Batch insert took too long: " + duration / 1_000_000 + " ms");
-        }
     }
 
     public void insert(PaymentEntity entity) {
-        String sql = """
-            INSERT INTO payments (correlation_id, amount, requested_at, processed_at_default)
-            VALUES (?, ?, ?, ?)
-            """;
-
-        long start = System.nanoTime();
-        jdbcTemplate.update(sql,
-                entity.getCorrelationId(),
-                entity.getAmount(),
-                Timestamp.from(entity.getRequestedAt()),
-                entity.isProcessedAtDefault()
-        );
-        long duration = System.nanoTime() - start;
-        if (duration > 1_000_000) {
-            System.err.println("Insert took too long: " + duration / 1_000_000 + " ms");
-        }
+        insertBatch(List.of(entity));
     }
 
     public void deleteAll() {
-        String sql = "DELETE FROM payments";
-        jdbcTemplate.update(sql);
+        if (mappedPaymentStore.isEnabled()) {
+            mappedPaymentStore.deleteAll();
+            return;
+        }
+        if (r2dbcClient.isEnabled()) {
+            r2dbcClient.update("DELETE FROM payments");
+            r2dbcClient.update("DELETE FROM payments_rollup");
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM payments");
+        jdbcTemplate.update("DELETE FROM payments_rollup");
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.jpdev01.rinha.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlStatement;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.ValidationDepth;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Acesso ao Postgres pelo driver R2DBC quando persistence.mode=r2dbc; no modo jdbc (padrão) não abre nada.
+ * Poucas conexões fixas (persistence.r2dbc.connections) em vez do pool do Hikari: os comandos são
+ * distribuídos em round-robin e o driver enfileira e envia em pipeline os que caem na mesma conexão,
+ * sem uma conexão presa por chamada. Conexão que cai é reaberta no próximo uso.
+ * Os repositórios passam o mesmo SQL do JdbcTemplate (com ?) e esperam o resultado numa virtual
+ * thread; o I/O fica nos event loops do Netty.
+ */
+@Component
+public class R2dbcClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Value("${persistence.mode:jdbc}")
+    private String mode;
+
+    @Value("${persistence.r2dbc.connections:2}")
+    private int connectionCount;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private boolean enabled;
+    private PostgresqlConnectionFactory connectionFactory;
+    private AtomicReferenceArray<Mono<PostgresqlConnection>> connections;
+    private final AtomicInteger next = new AtomicInteger();
+    // SQL com ? convertido para $1, $2...; a chave é a mesma String que os repositórios guardam em cache
+    private final Map<String, String> nativeSql = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        enabled = "r2dbc".equalsIgnoreCase(mode);
+        if (!enabled) return;
+
+        // jdbc:postgresql://host:port/database
+        URI uri = URI.create(url.substring("jdbc:".length()));
+        connectionFactory = new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host(uri.getHost())
+                .port(uri.getPort() < 0 ? 5432 : uri.getPort())
+                .database(uri.getPath().substring(1))
+                .username(username)
+                .password(password)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build());
+
+        connections = new AtomicReferenceArray<>(Math.max(1, connectionCount));
+        for (int i = 0; i < connections.length(); i++) {
+            connections.set(i, connect());
+        }
+        System.out.println("R2DBC persistence with " + connections.length() + " connections to " + uri.getHost());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connections == null) return;
+        for (int i = 0; i < connections.length(); i++) {
+            connections.get(i).flatMap(connection -> Mono.from(connection.close()))
+                    .onErrorResume(e -> Mono.empty())
+                    .block(Duration.ofSeconds(1));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // linhas afetadas
+    public long update(String sql, Object... args) {
+        Long rows = connection()
+                .flatMap(connection -> statement(connection, sql, args).execute()
+                        .flatMap(result -> result.getRowsUpdated())
+                        .reduce(0L, Long::sum))
+                .block(TIMEOUT);
+        return rows == null ? 0 : rows;
+    }
+
+    public <T> List<T> query(String sql, Function<Row, T> mapper, Object... args) {
+        return connection()
+                .flatMapMany(connection -> statement(connection, sql, args).execute()
+                        .flatMap(result -> result.map((row, metadata) -> mapper.apply(row))))
+                .collectList()
+                .block(TIMEOUT);
+    }
+
+    private PostgresqlStatement statement(PostgresqlConnection connection, String sql, Object[] args) {
+        PostgresqlStatement statement = connection.createStatement(nativeSql.computeIfAbsent(sql, R2dbcClient::toNativePlaceholders));
+        for (int i = 0; i < args.length; i++) {
+            statement.bind(i, args[i]);
+        }
+        return statement;
+    }
+
+    private Mono<PostgresqlConnection> connection() {
+        int slot = Math.floorMod(next.getAndIncrement(), connections.length());
+        Mono<PostgresqlConnection> current = connections.get(slot);
+        return current.flatMap(connection -> Mono.from(connection.validate(ValidationDepth.LOCAL))
+                .flatMap(valid -> {
+                    if (valid) return Mono.just(connection);
+                    // só quem ainda vê a conexão morta troca o slot; os outros pegam a nova
+                    Mono<PostgresqlConnection> replacement = connect();
+                    if (!connections.compareAndSet(slot, current, replacement)) {
+                        replacement = connections.get(slot);
+                    }
+                    return replacement;
+                }));
+    }
+
+    // a conexão aberta fica em cache; erro de conexão não fica, o próximo uso tenta de novo
+    private Mono<PostgresqlConnection> connect() {
+        return connectionFactory.create().cacheInvalidateIf(connection -> false);
+    }
+
+    private static String toNativePlaceholders(String sql) {
+        StringBuilder converted = new StringBuilder(sql.length() + 16);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                converted.append('$').append(++index);
+            } else {
+                converted.append(c);
+            }
+        }
+        return converted.toString();
+    }
+}
@@ -0,0 +1,139 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Agendador único para os pagamentos pendentes, com uma lane por tipo de trabalho.
+ * Qualquer worker livre pega o pagamento mais antigo (menor requestedAt) entre as cabeças
+ * de todas as lanes, então nenhuma lane fica parada enquanto outra acumula.
+ */
+public class LaneScheduler {
+
+    // em empate de requestedAt, a ordem aqui decide: retries primeiro
+    public enum Lane {
+        RETRY_DEFAULT,
+        RETRY_FALLBACK,
+        FRESH
+    }
+
+    // reaproveitado pelo worker a cada take, para não alocar um par (payment, lane)
+    public static final class Slot {
+        private Payment payment;
+        private Lane lane;
+        private final long[] enqueuedAt = new long[1];
+
+        public Payment payment() {
+            return payment;
+        }
+
+        public Lane lane() {
+            return lane;
+        }
+
+        // System.nanoTime() de quando o pagamento entrou na lane
+        public long enqueuedAt() {
+            return enqueuedAt[0];
+        }
+
+        private void set(Payment payment, Lane lane) {
+            this.payment = payment;
+            this.lane = lane;
+        }
+    }
+
+    private static final Lane[] LANES = Lane.values();
+    private static final long PUT_BACKOFF_NANOS = 100_000;
+
+    private final MpmcRing<Payment>[] rings;
+    private final Semaphore available = new Semaphore(0);
+
+    @SuppressWarnings("unchecked")
+    public LaneScheduler(int capacityPerLane) {
+        this.rings = new MpmcRing[LANES.length];
+        for (int i = 0; i < LANES.length; i++) {
+            rings[i] = new MpmcRing<>(capacityPerLane);
+        }
+    }
+
+    public boolean offer(Lane lane, Payment payment) {
+        if (!rings[lane.ordinal()].offer(payment, System.nanoTime())) return false;
+        available.release();
+        return true;
+    }
+
+    // para retries: o pagamento já foi aceito, então espera vaga em vez de descartar
+    public void put(Lane lane, Payment payment) {
+        while (!offer(lane, payment)) {
+            LockSupport.parkNanos(PUT_BACKOFF_NANOS);
+        }
+    }
+
+    public void take(Slot slot) throws InterruptedException {
+        available.acquire();
+        // o permit garante que existe um elemento; só pode faltar por corrida entre peek e poll
+        while (!pollOldest(slot)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    public boolean poll(Slot slot) {
+        if (!available.tryAcquire()) return false;
+        while (!pollOldest(slot)) {
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    private boolean pollOldest(Slot slot) {
+        int oldest = -1;
+        long oldestRequestedAt = Long.MAX_VALUE;
+        for (int i = 0; i < rings.length; i++) {
+            Payment head = rings[i].peek();
+            if (head == null) continue;
+            if (head.requestedAt() < oldestRequestedAt) {
+                oldest = i;
+                oldestRequestedAt = head.requestedAt();
+            }
+        }
+
+        if (oldest >= 0) {
+            Payment payment = rings[oldest].poll(slot.enqueuedAt);
+            if (payment != null) {
+                slot.set(payment, LANES[oldest]);
+                return true;
+            }
+        }
+
+        // outro worker levou a cabeça escolhida: pega de qualquer lane
+        for (int i = 0; i < rings.length; i++) {
+            Payment payment = rings[i].poll(slot.enqueuedAt);
+            if (payment != null) {
+                slot.set(payment, LANES[i]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size(Lane lane) {
+        return rings[lane.ordinal()].size();
+    }
+
+    public int size() {
+        return available.availablePermits();
+    }
+
+    public int capacity(Lane lane) {
+        return rings[lane.ordinal()].capacity();
+    }
+
+    public void clear() {
+        Slot slot = new Slot();
+        while (poll(slot)) {
+            // descarta
+        }
+    }
+}
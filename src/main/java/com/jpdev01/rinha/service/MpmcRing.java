@@ -0,0 +1,106 @@
+package com.jpdev01.rinha.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fila circular limitada, baseada em array, para vários produtores e consumidores
+ * (algoritmo do Vyukov: cada posição carrega um número de sequência).
+ * Não aloca nada por elemento e nunca bloqueia: offer/poll só retornam false/null.
+ * Cada posição guarda também um stamp (long) gravado junto com o elemento.
+ */
+final class MpmcRing<E> {
+
+    private final int mask;
+    private final Object[] buffer;
+    private final long[] stamps;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    MpmcRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.buffer = new Object[capacity];
+        this.stamps = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E element) {
+        return offer(element, 0);
+    }
+
+    // o stamp é publicado pelo mesmo set de sequência que publica o elemento
+    boolean offer(E element, long stamp) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = element;
+                    stamps[index] = stamp;
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // cheia
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    E poll() {
+        return poll(null);
+    }
+
+    // stampOut[0] recebe o stamp do elemento consumido
+    @SuppressWarnings("unchecked")
+    E poll(long[] stampOut) {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E element = (E) buffer[index];
+                    if (stampOut != null) stampOut[0] = stamps[index];
+                    buffer[index] = null;
+                    sequences.set(index, pos + mask + 1);
+                    return element;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null; // vazia
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    // olha o elemento da cabeça sem consumir; pode estar desatualizado logo em seguida
+    @SuppressWarnings("unchecked")
+    E peek() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) return null;
+        return (E) buffer[index];
+    }
+
+    int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) return 0;
+        return (int) Math.min(size, mask + 1);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
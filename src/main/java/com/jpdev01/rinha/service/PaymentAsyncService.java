@@ -1,119 +1,103 @@
 package com.jpdev01.rinha.service;
 
-import com.jpdev01.rinha.dto.SavePaymentRequestDTO;
-import com.jpdev01.rinha.state.DefaultClientState;
-import com.jpdev01.rinha.state.FallbackClientState;
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
+import com.jpdev01.rinha.state.Processor;
 import org.springframework.stereotype.Service;
 
 @Service
 public class PaymentAsyncService {
 
     private final PaymentService paymentService;
-    private final DefaultClientState defaultClientState;
+    private final ProcessorRouter processorRouter;
+    private final RetryScheduler retryScheduler;
+    private final PaymentMetrics paymentMetrics;
+    private final PaymentStatusIndex paymentStatusIndex;
 
-    private final static int PARALLELISM = 9;
-    private final static int MAX_RETRIES = 15;
-    private final FallbackClientState fallbackClientState;
+    // um único pool de workers atende todas as lanes do PaymentQueue; as chamadas em voo
+    // seguem o limite adaptativo de cada processador, não o número de workers
+    private final static int PARALLELISM = 4;
+    // os dois processadores no limite: espera curta por vaga, depois devolve ao retry
+    private final static long SATURATED_WAIT_MILLIS = 50;
 
 
-    public PaymentAsyncService(DefaultClientState defaultClientState, PaymentService paymentService, FallbackClientState fallbackClientState) {
-        this.defaultClientState = defaultClientState;
-        this.fallbackClientState = fallbackClientState;
+    public PaymentAsyncService(ProcessorRouter processorRouter, PaymentService paymentService, RetryScheduler retryScheduler, PaymentMetrics paymentMetrics, PaymentStatusIndex paymentStatusIndex) {
+        this.processorRouter = processorRouter;
+        this.retryScheduler = retryScheduler;
+        this.paymentMetrics = paymentMetrics;
+        this.paymentStatusIndex = paymentStatusIndex;
 
         this.paymentService = paymentService;
 
         for (int i = 0; i < PARALLELISM; i++) {
             Thread.startVirtualThread(this::runWorker);
         }
-        for (int i = 0; i < 5; i++) {
-            Thread.startVirtualThread(this::runDefaultWorker);
-        }
-
-        for (int i = 0; i < 1; i++) {
-            Thread.startVirtualThread(this::runFallbackWorker);
-        }
     }
 
     private void runWorker() {
+        LaneScheduler.Slot slot = new LaneScheduler.Slot();
         while (true) {
-            var payment = getPayment();
-            if (defaultClientState.health()) {
-                if (processDefaultWithRetry(payment)) continue;
-
-                PaymentQueue.getInstance().addToDefaultRetry(payment);
+            takePayment(slot);
+            paymentMetrics.recordQueueWait(slot.lane(), System.nanoTime() - slot.enqueuedAt());
+            var payment = slot.payment();
+            // já confirmado (resposta atrasada de uma tentativa anterior): nem chama o processador
+            if (paymentStatusIndex.isConfirmed(payment)) {
+                retryScheduler.onSuccess(payment);
                 continue;
             }
-
-            if (fallbackClientState.health()) {
-                if (processFallbackWithRetry(payment)) continue;
-
-                PaymentQueue.getInstance().addToFallbackRetry(payment);
-                continue;
+            switch (slot.lane()) {
+                case FRESH -> process(payment);
+                case RETRY_DEFAULT -> retry(payment, Processor.DEFAULT);
+                case RETRY_FALLBACK -> retry(payment, Processor.FALLBACK);
             }
-
-            PaymentQueue.getInstance().addToDefaultRetry(payment);
-        }
-    }
-
-    public SavePaymentRequestDTO getDefaultPayment() {
-        try {
-            return PaymentQueue.getInstance().getDefaultQueue().take();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    public SavePaymentRequestDTO getFallbackPayment() {
-        try {
-            return PaymentQueue.getInstance().getFallbackQueue().take();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
         }
     }
 
-    public void runDefaultWorker() {
-        while (true) {
-            var payment = getDefaultPayment();
-            if (processDefaultWithRetry(payment)) continue;
-            PaymentQueue.getInstance().addToDefaultRetry(payment);
-        }
+    private void process(Payment payment) {
+        Processor processor = choose(payment, Processor.DEFAULT);
+        if (processor != null) dispatch(payment, processor);
     }
 
-    public void runFallbackWorker() {
-        while (true) {
-            var payment = getFallbackPayment();
-            if (processFallbackWithRetry(payment)) continue;
-            PaymentQueue.getInstance().addToFallbackRetry(payment);
-        }
+    // o retry já consumiu orçamento do processador da lane; só troca se ele estiver fora ou cheio
+    private void retry(Payment payment, Processor preferred) {
+        Processor processor = processorRouter.tryAcquire(preferred) ? preferred : choose(payment, preferred);
+        if (processor != null) dispatch(payment, processor);
     }
 
-    private boolean processDefaultWithRetry(SavePaymentRequestDTO payment) {
-        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
-            try {
-                boolean success = paymentService.processDefault(payment);
-                if (success) return true;
-            } catch (Exception e) {
-                System.err.println("Erro ao processar pagamento com o cliente padrão: " + e.getMessage());
-            }
+    // null quando o pagamento voltou para o retry scheduler
+    private Processor choose(Payment payment, Processor retryProcessor) {
+        try {
+            Processor processor = processorRouter.choose(SATURATED_WAIT_MILLIS);
+            if (processor != null) return processor;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return false;
+        retryScheduler.schedule(payment, retryProcessor);
+        return null;
     }
 
-    private boolean processFallbackWithRetry(SavePaymentRequestDTO payment) {
-        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
-            try {
-                boolean success = paymentService.processFallback(payment);
-                if (success) return true;
-            } catch (Exception e) {
-                System.err.println("Erro ao processar pagamento com o cliente padrão: " + e.getMessage());
-            }
+    // o processador já vem com vaga reservada; a resposta é tratada na conexão
+    private void dispatch(Payment payment, Processor processor) {
+        try {
+            paymentService.processAsync(payment, processor).whenComplete((success, error) -> {
+                if (error == null && success) {
+                    retryScheduler.onSuccess(payment);
+                } else {
+                    retryScheduler.schedule(payment, processor);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            retryScheduler.schedule(payment, processor);
+        } catch (Exception e) {
+            System.err.println("Erro ao processar pagamento com o cliente " + processor + ": " + e.getMessage());
+            retryScheduler.schedule(payment, processor);
         }
-        return false;
     }
 
-    public SavePaymentRequestDTO getPayment() {
+    private void takePayment(LaneScheduler.Slot slot) {
         try {
-            return PaymentQueue.getInstance().getQueue().take();
+            PaymentQueue.getInstance().take(slot);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -1,40 +1,63 @@
 package com.jpdev01.rinha.service;
 
-import com.jpdev01.rinha.integration.client.DefaultClient;
-import com.jpdev01.rinha.integration.client.FallbackClient;
 import com.jpdev01.rinha.integration.client.PaymentClient;
+import com.jpdev01.rinha.repository.ClientStateListener;
 import com.jpdev01.rinha.repository.ClientStateRepository;
+import com.jpdev01.rinha.repository.HealthProbeLeader;
 import com.jpdev01.rinha.repository.PaymentRepository;
 import com.jpdev01.rinha.state.ClientState;
 import com.jpdev01.rinha.state.DefaultClientState;
 import com.jpdev01.rinha.state.FallbackClientState;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Mono;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Mantém o estado dos processadores. Só o líder eleito pelo {@link HealthProbeLeader} chama o
+ * /service-health; as outras instâncias recebem o resultado pelo LISTEN/NOTIFY (com polling no
+ * banco de rede de segurança). O líder chama cada processador a cada {@link #PROBE_INTERVAL_MILLIS},
+ * sem pular rodada, com o fallback meio intervalo defasado do default.
+ */
 @Service
 public class PaymentHealthCheckService {
 
-    private final DefaultClient defaultClient;
-    private final FallbackClient fallBackClient;
+    // com o LISTEN ativo o estado chega por notificação; o polling só cobre o que se perder
+    private static final long SAFETY_NET_POLL_MILLIS = 30_000;
+    private static final long DATABASE_POLL_MILLIS = 2_000;
+    // o processador aceita 1 chamada a cada 5s; a margem cobre atraso do tick e jitter de rede
+    private static final long RATE_LIMIT_MILLIS = 5_000;
+    private static final long PROBE_INTERVAL_MILLIS = 5_100;
+    private static final long MIN_PROBE_GAP_MILLIS = 5_050;
+    private static final long TICK_MILLIS = 50;
+
+    private final PaymentClient defaultClient;
+    private final PaymentClient fallBackClient;
     private final DefaultClientState defaultClientState;
     private final FallbackClientState fallbackClientState;
     private final ClientStateRepository clientStateRepository;
+    private final ClientStateListener clientStateListener;
+    private final HealthProbeLeader healthProbeLeader;
+    private final Map<String, Long> lastDatabasePoll = new ConcurrentHashMap<>();
 
-    @Value("${services.execute-health-check}")
-    private boolean executeHealthCheck;
+    // só a thread do tick mexe nestes
+    private boolean leading;
+    private long lastTick;
+    private long nextDefaultProbe;
+    private long nextFallbackProbe;
 
-    public PaymentHealthCheckService(DefaultClient defaultClient, FallbackClient fallBackClient, DefaultClientState defaultClientState, FallbackClientState fallbackClientState, ClientStateRepository clientStateRepository) {
+    public PaymentHealthCheckService(@Qualifier("defaultClient") PaymentClient defaultClient, @Qualifier("fallbackClient") PaymentClient fallBackClient, DefaultClientState defaultClientState, FallbackClientState fallbackClientState, ClientStateRepository clientStateRepository, ClientStateListener clientStateListener, HealthProbeLeader healthProbeLeader) {
         this.defaultClient = defaultClient;
         this.fallBackClient = fallBackClient;
         this.defaultClientState = defaultClientState;
         this.fallbackClientState = fallbackClientState;
         this.clientStateRepository = clientStateRepository;
+        this.clientStateListener = clientStateListener;
+        this.healthProbeLeader = healthProbeLeader;
 
         try {
             clientStateRepository.insertIfNecessary(defaultClientState, fallbackClientState);
@@ -42,36 +65,68 @@ public class PaymentHealthCheckService {
             System.err.println("Error initializing payment processor state: " + e.getMessage());
         }
 
-        final int period = 2;
-        final int initialDelay = 0;
-
-        Executors.newSingleThreadScheduledExecutor()
-                .scheduleAtFixedRate(this::checkDefaultHealth, initialDelay, period, TimeUnit.SECONDS);
         Executors.newSingleThreadScheduledExecutor()
-                .scheduleAtFixedRate(this::checkFallbackHealth, initialDelay, period, TimeUnit.SECONDS);
-    }
-
-    private void checkDefaultHealth() {
-        if (executeHealthCheck) {
-            checkHealth(defaultClientState, defaultClient);
-        } else {
-            checkHealthDatabaseBased(defaultClientState, "default");
-        }
+                .scheduleAtFixedRate(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
     }
 
-    private void checkFallbackHealth() {
+    private void tick() {
         try {
-            if (executeHealthCheck) {
-                checkHealth(fallbackClientState, fallBackClient);
-            } else {
+            long now = System.currentTimeMillis();
+            long previousTick = lastTick;
+            lastTick = now;
+
+            if (!healthProbeLeader.isLeader()) {
+                leading = false;
+                checkHealthDatabaseBased(defaultClientState, "default");
                 checkHealthDatabaseBased(fallbackClientState, "fallback");
+                return;
+            }
+            // líder que ficou parado mais de um intervalo (GC, CPU estrangulada) passa a vez
+            if (leading && now - previousTick > PROBE_INTERVAL_MILLIS) {
+                System.err.println("Health probe tick stalled for " + (now - previousTick) + "ms, resigning");
+                healthProbeLeader.resign();
+                leading = false;
+                return;
+            }
+            if (!leading) {
+                takeOver(now);
+                leading = true;
+            }
+
+            if (now >= nextDefaultProbe) {
+                nextDefaultProbe = Math.max(nextDefaultProbe + PROBE_INTERVAL_MILLIS, now + MIN_PROBE_GAP_MILLIS);
+                checkHealth(defaultClientState, defaultClient, now);
+            }
+            if (now >= nextFallbackProbe) {
+                nextFallbackProbe = Math.max(nextFallbackProbe + PROBE_INTERVAL_MILLIS, now + MIN_PROBE_GAP_MILLIS);
+                checkHealth(fallbackClientState, fallBackClient, now);
             }
         } catch (Exception exception) {
-            System.err.println("Error checking fallback health: " + exception.getMessage());
+            System.err.println("Error during health check tick: " + exception.getMessage());
         }
     }
 
+    // a última chamada do líder anterior vem do banco; fallback defasado meio intervalo do default
+    private void takeOver(long now) {
+        readFromDatabase(defaultClientState, "default");
+        readFromDatabase(fallbackClientState, "fallback");
+        nextDefaultProbe = Math.max(now, defaultClientState.lastHealthCheckRun() + PROBE_INTERVAL_MILLIS);
+        nextFallbackProbe = Math.max(nextDefaultProbe + PROBE_INTERVAL_MILLIS / 2,
+                fallbackClientState.lastHealthCheckRun() + PROBE_INTERVAL_MILLIS);
+        System.out.println("Probing processor health as leader");
+    }
+
     private void checkHealthDatabaseBased(ClientState state, String clientName) {
+        long now = System.currentTimeMillis();
+        long interval = clientStateListener.isListening() ? SAFETY_NET_POLL_MILLIS : DATABASE_POLL_MILLIS;
+        if (now - lastDatabasePoll.getOrDefault(clientName, 0L) < interval) {
+            return;
+        }
+        lastDatabasePoll.put(clientName, now);
+        readFromDatabase(state, clientName);
+    }
+
+    private void readFromDatabase(ClientState state, String clientName) {
         try {
             Map response = clientStateRepository.get(state);
             if (response.isEmpty()) return;
@@ -115,34 +170,38 @@ public class PaymentHealthCheckService {
         }
     }
 
-    private void checkHealth(final ClientState state, final PaymentClient client) {
-        try {
-            if (state.health() && state.isMinimumResponseTimeUnder(10)) return;
-            if (!validateRateLimit(state)) return;
+    private void checkHealth(final ClientState state, final PaymentClient client, long now) {
+        if (!validateRateLimit(state, now)) return;
+        state.setLastHealthCheckRun(now);
+        // o send espera permissão do pool dos pagamentos e o claim vai ao banco: fora da thread do tick
+        Thread.ofVirtual().name("health-probe").start(() -> probe(state, client, now));
+    }
 
-            state.setLastHealthCheckRun(System.currentTimeMillis());
+    private void probe(final ClientState state, final PaymentClient client, long now) {
+        try {
+            clientStateRepository.claimProbe(state, now);
 
             client.health()
-                    .flatMap(response -> {
+                    .thenAccept(response -> {
                         if (response != null) {
                             state.setHealthy(!response.failing());
                             state.setMinResponseTime(response.minResponseTime());
                             updateDb(state);
                             System.out.println("db updated");
                         }
-                        return Mono.empty();
                     })
-                    .subscribe();
+                    .exceptionally(error -> {
+                        System.err.println("Error updating health state for " + client.getClass().getSimpleName() + ": " + error.getMessage());
+                        return null;
+                    });
         } catch (Exception e) {
             System.err.println("Error during health check for " + client.getClass().getSimpleName() + ": " + e.getMessage());
             state.setHealthy(false);
         }
     }
 
-    private boolean validateRateLimit(ClientState clientState) {
-        int minimumInterval = 5000;
-
-        return System.currentTimeMillis() - clientState.lastHealthCheckRun() > minimumInterval;
+    private boolean validateRateLimit(ClientState clientState, long now) {
+        return now - clientState.lastHealthCheckRun() > RATE_LIMIT_MILLIS;
     }
 
     private void updateDb(ClientState clientState) {
@@ -0,0 +1,472 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
+import com.jpdev01.rinha.state.Processor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Journal append-only dos pagamentos aceitos e ainda não confirmados, em segmentos de tamanho
+ * fixo mapeados em memória. Cada registro tem 40 bytes (seq do segmento, tipo, correlationId,
+ * centavos, requestedAt); o seq é escrito por último e marca o registro como completo.
+ * Aceite e confirmação não passam por lock: cada escrita reserva o seu registro com um getAndAdd
+ * na posição do segmento ativo e publica o seq com release; o monitor fica para a rotação, o spill
+ * e o cursor do pager. Como registros reservados podem terminar fora de ordem, o replay varre o
+ * segmento inteiro e pula os buracos que uma queda deixou no meio.
+ * Quando o backlog em memória passa do limite, os pagamentos novos ficam só no journal (spill)
+ * e voltam para a lane FRESH conforme ela esvazia; o mesmo vale para os retries que não cabem
+ * no estacionamento do {@link RetryScheduler}. No start, o que não foi confirmado é
+ * regravado como spill e reprocessado. Segmento sem pagamento pendente volta para a lista
+ * de livres e é reaproveitado, então em regime o custo é uma escrita sequencial na page cache;
+ * o livre perde o sufixo .journal, então o replay não o lê de novo.
+ * Desligado quando journal.dir está vazio.
+ */
+@Component
+public class PaymentJournal {
+
+    private static final int RECORD_BYTES = 40;
+    private static final int SEGMENT_BYTES = RECORD_BYTES * (1 << 17); // ~5 MB, 131072 registros
+    private static final String SUFFIX = ".journal";
+    private static final String FREE_SUFFIX = ".free";
+
+    private static final byte ACCEPTED = 1;
+    private static final byte SPILLED = 2;
+    private static final byte DONE = 3;
+
+    private static final int SPILL_HIGH_WATERMARK = 16_384;
+    private static final int SPILL_LOW_WATERMARK = 4_096;
+    private static final long PAGER_INTERVAL_MILLIS = 10;
+    // passou disso, os pendentes do segmento mais antigo são regravados no ativo para liberar o arquivo
+    private static final int COMPACT_AFTER_SEGMENTS = 8;
+    private static final int MAX_FREE_SEGMENTS = 2;
+    // mesma ordem do getInt/putInt do MappedByteBuffer: o formato dos arquivos não muda
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final PaymentStatusIndex paymentStatusIndex;
+    private final RetryScheduler retryScheduler;
+
+    @Value("${journal.dir:}")
+    private String dir;
+
+    // do mais antigo para o ativo (o último); só muda sob o lock
+    private final List<Segment> segments = new ArrayList<>();
+    private final ArrayDeque<Segment> free = new ArrayDeque<>();
+    // segmento onde está o registro vigente de cada pagamento pendente que já está na heap
+    private final Map<Payment, Segment> live = new ConcurrentHashMap<>();
+    // lido sem lock pelas escritas; trocado só no rotate e no clear
+    private volatile Segment active;
+    private Segment pageInSegment;
+    private int pageInOffset;
+    // escrito sob o lock, lido sem ele pelas métricas e pelo pager
+    private volatile long spilled;
+    private long nextSeq = 1;
+    private boolean compacting;
+
+    private volatile boolean enabled;
+    private volatile boolean spilling;
+
+    public PaymentJournal(PaymentStatusIndex paymentStatusIndex, RetryScheduler retryScheduler) {
+        this.paymentStatusIndex = paymentStatusIndex;
+        this.retryScheduler = retryScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (dir == null || dir.isBlank()) return;
+        try {
+            Files.createDirectories(Path.of(dir));
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open payment journal at " + dir, e);
+        }
+        enabled = true;
+        retryScheduler.onOverflow(this::spillRetry);
+        Thread.ofVirtual().name("journal-pager").start(this::runPager);
+    }
+
+    // o ingest consulta a cada POST: um volatile, atualizado pelo pager
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    public void append(Payment payment) {
+        if (!enabled) return;
+        Segment segment = write(ACCEPTED, payment);
+        Segment previous = live.put(payment, segment);
+        if (previous != null) previous.live.decrementAndGet();
+    }
+
+    // aceito só no journal; o pager devolve para a fila quando houver espaço
+    public void spill(Payment payment) {
+        if (!enabled) return;
+        synchronized (this) {
+            writeSpilled(payment);
+        }
+    }
+
+    // retry que não coube no estacionamento: sai da heap e volta pelo pager
+    public boolean spillRetry(Payment payment) {
+        if (!enabled) return false;
+        synchronized (this) {
+            Segment previous = live.remove(payment);
+            if (previous != null) previous.live.decrementAndGet();
+            writeSpilled(payment);
+        }
+        return true;
+    }
+
+    // sai do mapa antes de gravar o DONE: uma compactação que copie o registro depois disso
+    // não acha mais o pagamento e grava o próprio DONE atrás da cópia
+    public void done(Payment payment) {
+        if (!enabled) return;
+        Segment previous = live.remove(payment);
+        if (previous != null) previous.live.decrementAndGet();
+        write(DONE, payment);
+    }
+
+    public long spilled() {
+        return spilled;
+    }
+
+    // sob o lock: o pager passa o pagamento do spill para o mapa em dois passos
+    public synchronized long pending() {
+        return live.size() + spilled;
+    }
+
+    public synchronized int segments() {
+        return segments.size();
+    }
+
+    // uma escrita concorrente com o purge pode cair num segmento descartado; por isso eles
+    // são apagados em vez de voltar para a lista de livres
+    public synchronized void clear() {
+        if (!enabled) return;
+        live.clear();
+        spilled = 0;
+        for (Segment segment : segments) {
+            delete(segment);
+        }
+        segments.clear();
+        Segment next = next();
+        segments.add(next);
+        active = next;
+        pageInSegment = next;
+        pageInOffset = 0;
+    }
+
+    private void replay() throws IOException {
+        List<Path> files;
+        List<Path> stale;
+        try (Stream<Path> list = Files.list(Path.of(dir))) {
+            List<Path> all = list.sorted().toList();
+            files = all.stream().filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList();
+            stale = all.stream().filter(path -> path.getFileName().toString().endsWith(FREE_SUFFIX)).toList();
+        }
+        // livres da execução anterior não têm nada a reprocessar
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+
+        Set<Payment> unfinished = new LinkedHashSet<>();
+        List<Segment> old = new ArrayList<>();
+        for (Path file : files) {
+            Segment segment = Segment.open(file, seqOf(file));
+            nextSeq = Math.max(nextSeq, segment.seq + 1);
+            // reservas concorrentes: um registro incompleto no meio não esconde os seguintes
+            for (int offset = 0; offset + RECORD_BYTES <= SEGMENT_BYTES; offset += RECORD_BYTES) {
+                if (!segment.isRecord(offset)) continue;
+                Payment payment = segment.read(offset);
+                if (segment.type(offset) == DONE) {
+                    unfinished.remove(payment);
+                } else {
+                    unfinished.add(payment);
+                }
+            }
+            old.add(segment);
+        }
+
+        // regrava antes de liberar os arquivos antigos: uma queda no meio não perde nada
+        Segment first = next();
+        segments.add(first);
+        active = first;
+        pageInSegment = first;
+        pageInOffset = 0;
+        for (Payment payment : unfinished) {
+            paymentStatusIndex.tryAccept(payment);
+            writeSpilled(payment);
+        }
+        for (Segment segment : old) {
+            recycle(segment);
+        }
+        spilling = spilled > 0;
+        if (!unfinished.isEmpty()) {
+            System.out.println("Payment journal replayed " + unfinished.size() + " unfinished payments");
+        }
+    }
+
+    // sem spill pendente o cursor do pager pula para o fim do ativo; senão ele seguraria
+    // todos os segmentos desde a última leitura. Spill só é gravado sob o lock, então o que
+    // houver entre o cursor e este registro não é SPILLED
+    private void writeSpilled(Payment payment) {
+        if (spilled == 0) {
+            pageInSegment = active;
+            pageInOffset = pageInSegment.reserved();
+        }
+        write(SPILLED, payment);
+        spilled++;
+    }
+
+    // spill não entra no mapa (é o que economiza heap); entra quando o pager devolve para a fila
+    private Segment write(byte type, Payment payment) {
+        while (true) {
+            Segment segment = active;
+            // conta antes de reservar: o rotate não libera segmento com escrita em andamento
+            segment.live.incrementAndGet();
+            int offset = segment.reserve();
+            if (offset >= 0) {
+                segment.append(offset, type, payment);
+                // DONE não deixa nada pendente no segmento
+                if (type == DONE) segment.live.decrementAndGet();
+                return segment;
+            }
+            segment.live.decrementAndGet();
+            rotate(segment);
+        }
+    }
+
+    // quem estourou o segmento troca o ativo; os outros que estouraram junto só esperam o lock
+    private synchronized void rotate(Segment full) {
+        if (active != full) return;
+        // libera do começo: só segmentos inteiros já lidos pelo pager e sem pendentes
+        while (segments.size() > 1 && behindPager(segments.get(0)) && segments.get(0).live.get() == 0) {
+            recycle(segments.remove(0));
+        }
+        Segment next = next();
+        segments.add(next);
+        active = next;
+        if (!compacting && segments.size() > COMPACT_AFTER_SEGMENTS && behindPager(segments.get(0))) {
+            compact(segments.get(0));
+        }
+    }
+
+    // um pagamento parado há muito tempo não segura o segmento: o registro vai para o ativo
+    private void compact(Segment oldest) {
+        compacting = true;
+        try {
+            List<Payment> pending = new ArrayList<>();
+            for (Map.Entry<Payment, Segment> entry : live.entrySet()) {
+                if (entry.getValue() == oldest) pending.add(entry.getKey());
+            }
+            for (Payment payment : pending) {
+                Segment copy = write(ACCEPTED, payment);
+                if (live.replace(payment, oldest, copy)) {
+                    oldest.live.decrementAndGet();
+                } else {
+                    // confirmado durante a cópia: o DONE dele pode ter ficado antes da cópia
+                    copy.live.decrementAndGet();
+                    write(DONE, payment);
+                }
+            }
+            // um rotate no meio da cópia pode já ter liberado o segmento
+            if (oldest.live.get() == 0 && segments.remove(oldest)) {
+                recycle(oldest);
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    // sem spill pendente o cursor não segura nada: o próximo spill o reposiciona
+    private boolean behindPager(Segment segment) {
+        return spilled == 0 || segment != pageInSegment;
+    }
+
+    private Segment next() {
+        long seq = nextSeq++;
+        Path path = Path.of(dir, fileName(seq));
+        Segment segment = free.poll();
+        try {
+            if (segment == null) return Segment.open(path, seq);
+            Files.move(segment.path, path);
+            segment.reset(path, seq);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + path, e);
+        }
+    }
+
+    // uma queda antes do rename deixa o .journal inteiro: o replay o lê de novo, e como nada nele
+    // está pendente (os DONE estão nele ou nos seguintes) o resultado é o mesmo
+    private void recycle(Segment segment) {
+        if (free.size() >= MAX_FREE_SEGMENTS) {
+            delete(segment);
+            return;
+        }
+        try {
+            Path path = Path.of(dir, String.format("%020d%s", segment.seq, FREE_SUFFIX));
+            Files.move(segment.path, path);
+            segment.path = path;
+            free.add(segment);
+        } catch (IOException e) {
+            System.err.println("Error recycling journal segment " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            System.err.println("Error deleting journal segment " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    private void runPager() {
+        while (true) {
+            try {
+                Thread.sleep(PAGER_INTERVAL_MILLIS);
+                long backlog = backlog();
+                if (backlog < SPILL_LOW_WATERMARK) {
+                    pageIn((int) (SPILL_HIGH_WATERMARK - backlog));
+                }
+                spilling = spilled() > 0 || backlog >= SPILL_HIGH_WATERMARK;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Error paging in spilled payments: " + e.getMessage());
+            }
+        }
+    }
+
+    // lê os registros SPILLED em ordem a partir do cursor e devolve para a lane FRESH
+    private synchronized void pageIn(int max) {
+        int paged = 0;
+        while (paged < max && spilled > 0) {
+            Segment segment = pageInSegment;
+            if (pageInOffset + RECORD_BYTES > segment.reserved()) {
+                int index = segments.indexOf(segment);
+                if (index == segments.size() - 1) return;
+                pageInSegment = segments.get(index + 1);
+                pageInOffset = 0;
+                continue;
+            }
+            // depois do cursor todo SPILLED ainda está só no journal; registro ainda sem seq é
+            // uma escrita sem lock em andamento, nunca um spill
+            if (segment.isRecord(pageInOffset) && segment.type(pageInOffset) == SPILLED) {
+                Payment payment = segment.read(pageInOffset);
+                // no mapa antes de entrar na fila: o done do worker precisa encontrá-lo
+                live.put(payment, segment);
+                if (!PaymentQueue.getInstance().add(payment)) {
+                    live.remove(payment);
+                    return;
+                }
+                spilled--;
+                paged++;
+            }
+            pageInOffset += RECORD_BYTES;
+        }
+    }
+
+    private long backlog() {
+        PaymentQueue queue = PaymentQueue.getInstance();
+        long backlog = retryScheduler.delayedSize();
+        for (Lane lane : Lane.values()) {
+            backlog += queue.size(lane);
+        }
+        return backlog + retryScheduler.parkedSize(Processor.DEFAULT) + retryScheduler.parkedSize(Processor.FALLBACK);
+    }
+
+    private static String fileName(long seq) {
+        return String.format("%020d%s", seq, SUFFIX);
+    }
+
+    private static long seqOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static final class Segment {
+
+        private Path path;
+        private long seq;
+        private final MappedByteBuffer buffer;
+        // próxima reserva; passa do fim quando o segmento enche
+        private final AtomicInteger position = new AtomicInteger();
+        // pendentes do segmento mais as escritas em andamento nele
+        private final AtomicInteger live = new AtomicInteger();
+
+        private Segment(Path path, long seq, MappedByteBuffer buffer) {
+            this.path = path;
+            this.seq = seq;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long seq) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(path, seq, channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES));
+            }
+        }
+
+        // os registros do uso anterior têm outro seq e passam a marcar o fim
+        void reset(Path path, long seq) {
+            this.path = path;
+            this.seq = seq;
+            this.position.set(0);
+            this.live.set(0);
+        }
+
+        // offset do registro reservado, ou -1 se o segmento encheu
+        int reserve() {
+            int offset = position.getAndAdd(RECORD_BYTES);
+            return offset + RECORD_BYTES <= SEGMENT_BYTES ? offset : -1;
+        }
+
+        int reserved() {
+            return Math.min(position.get(), SEGMENT_BYTES);
+        }
+
+        boolean isRecord(int offset) {
+            return offset + RECORD_BYTES <= SEGMENT_BYTES && (int) INTS.getAcquire(buffer, offset) == (int) seq;
+        }
+
+        byte type(int offset) {
+            return buffer.get(offset + 4);
+        }
+
+        Payment read(int offset) {
+            return new Payment(buffer.getLong(offset + 8), buffer.getLong(offset + 16),
+                    buffer.getLong(offset + 24), buffer.getLong(offset + 32));
+        }
+
+        void append(int offset, byte type, Payment payment) {
+            buffer.put(offset + 4, type);
+            buffer.putLong(offset + 8, payment.correlationIdMsb());
+            buffer.putLong(offset + 16, payment.correlationIdLsb());
+            buffer.putLong(offset + 24, payment.amountCents());
+            buffer.putLong(offset + 32, payment.requestedAt());
+            INTS.setRelease(buffer, offset, (int) seq);
+        }
+    }
+}
@@ -1,19 +1,21 @@
 package com.jpdev01.rinha.service;
 
-import com.jpdev01.rinha.dto.SavePaymentRequestDTO;
+import com.jpdev01.rinha.entity.Payment;
 import com.jpdev01.rinha.entity.PaymentEntity;
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
 
-import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 public class PaymentQueue {
 
-    BlockingQueue<SavePaymentRequestDTO> queue = new LinkedBlockingQueue<>();
-    BlockingQueue<SavePaymentRequestDTO> defaultQueue = new LinkedBlockingQueue<>();
-    BlockingQueue<SavePaymentRequestDTO> fallbackQueue = new LinkedBlockingQueue<>();
-    BlockingQueue<PaymentEntity> insertQueue = new LinkedBlockingQueue<>();
+    private static final int LANE_CAPACITY = 1 << 16;
+
+    // limite da fila de inserts; quando o banco atrasa, o excedente vai para o overflow do write-behind
+    private static final int INSERT_QUEUE_CAPACITY = 4096;
+
+    private final LaneScheduler scheduler = new LaneScheduler(LANE_CAPACITY);
+    BlockingQueue<PaymentEntity> insertQueue = new LinkedBlockingQueue<>(INSERT_QUEUE_CAPACITY);
 
     private static final class InstanceHolder {
         private static final PaymentQueue instance = new PaymentQueue();
@@ -23,39 +25,37 @@ public class PaymentQueue {
         return InstanceHolder.instance;
     }
 
-    public void add(SavePaymentRequestDTO payment) {
-        queue.add(payment);
+    // false quando a lane de entrada está cheia
+    public boolean add(Payment payment) {
+        return scheduler.offer(Lane.FRESH, payment);
     }
 
-    public SavePaymentRequestDTO poll() {
-        return queue.poll();
+    public void take(LaneScheduler.Slot slot) throws InterruptedException {
+        scheduler.take(slot);
     }
 
-    public BlockingQueue<SavePaymentRequestDTO> getQueue() {
-        return queue;
+    public void addToDefaultRetry(Payment payment) {
+        scheduler.put(Lane.RETRY_DEFAULT, payment);
     }
 
-    public void addToDefaultRetry(SavePaymentRequestDTO payment) {
-        defaultQueue.add(payment);
+    public void addToFallbackRetry(Payment payment) {
+        scheduler.put(Lane.RETRY_FALLBACK, payment);
     }
-    
-    public void addToFallbackRetry(SavePaymentRequestDTO payment) {
-        fallbackQueue.add(payment);
-    }
-    
-    public BlockingQueue<SavePaymentRequestDTO> getFallbackQueue() {
-        return fallbackQueue;
+
+    public int size(Lane lane) {
+        return scheduler.size(lane);
     }
 
-    public BlockingQueue<SavePaymentRequestDTO> getDefaultQueue() {
-        return defaultQueue;
+    public void clear() {
+        scheduler.clear();
     }
 
     public BlockingQueue<PaymentEntity> getInsertQueue() {
         return insertQueue;
     }
 
-    public void addToInsertQueue(PaymentEntity payment) {
-        insertQueue.add(payment);
+    // false quando a fila está cheia; quem chama é a thread da conexão, que não pode bloquear
+    public boolean offerToInsertQueue(PaymentEntity payment) {
+        return insertQueue.offer(payment);
     }
 }
@@ -1,34 +1,61 @@
 package com.jpdev01.rinha.service;
 
+import com.jpdev01.rinha.dto.PaymentBucketDTO;
 import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
-import com.jpdev01.rinha.dto.SavePaymentRequestDTO;
+import com.jpdev01.rinha.entity.Payment;
 import com.jpdev01.rinha.entity.PaymentEntity;
-import com.jpdev01.rinha.integration.client.DefaultClient;
-import com.jpdev01.rinha.integration.client.FallbackClient;
 import com.jpdev01.rinha.integration.client.PaymentClient;
+import com.jpdev01.rinha.integration.client.PeerSummaryClient;
+import com.jpdev01.rinha.metrics.PaymentMetrics;
 import com.jpdev01.rinha.repository.PaymentRepository;
-import com.jpdev01.rinha.state.ClientState;
 import com.jpdev01.rinha.state.DefaultClientState;
 import com.jpdev01.rinha.state.FallbackClientState;
+import com.jpdev01.rinha.state.Processor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class PaymentService {
 
-    private final DefaultClient defaultClient;
-    private final FallbackClient fallBackClient;
+    private final PaymentClient defaultClient;
+    private final PaymentClient fallBackClient;
     private final DefaultClientState defaultClientState;
     private final FallbackClientState fallbackClientState;
     private final PaymentRepository paymentRepository;
-
-    public PaymentService(DefaultClient defaultClient, PaymentRepository paymentRepository, FallbackClient fallBackClient, DefaultClientState defaultClientState, FallbackClientState fallbackClientState) {
+    private final PaymentWriteBehindService paymentWriteBehindService;
+    private final PaymentSummaryAggregator paymentSummaryAggregator;
+    private final PeerSummaryClient peerSummaryClient;
+    private final ProcessorRouter processorRouter;
+    private final RetryScheduler retryScheduler;
+    private final PaymentMetrics paymentMetrics;
+    private final PaymentStatusIndex paymentStatusIndex;
+    private final PaymentJournal paymentJournal;
+
+    @Value("${services.summary-in-memory:true}")
+    private boolean summaryInMemory;
+
+    private static final long SUMMARY_FLUSH_TIMEOUT_MILLIS = 500;
+    private static final long SEED_RETRY_MILLIS = 1000;
+    private static final int PEER_PURGE_ATTEMPTS = 3;
+    private static final long PEER_PURGE_RETRY_MILLIS = 200;
+
+    public PaymentService(@Qualifier("defaultClient") PaymentClient defaultClient, PaymentRepository paymentRepository, @Qualifier("fallbackClient") PaymentClient fallBackClient, DefaultClientState defaultClientState, FallbackClientState fallbackClientState, PaymentWriteBehindService paymentWriteBehindService, PaymentSummaryAggregator paymentSummaryAggregator, PeerSummaryClient peerSummaryClient, ProcessorRouter processorRouter, RetryScheduler retryScheduler, PaymentMetrics paymentMetrics, PaymentStatusIndex paymentStatusIndex, PaymentJournal paymentJournal) {
         this.defaultClient = defaultClient;
+        this.paymentWriteBehindService = paymentWriteBehindService;
+        this.paymentSummaryAggregator = paymentSummaryAggregator;
+        this.peerSummaryClient = peerSummaryClient;
+        this.processorRouter = processorRouter;
+        this.retryScheduler = retryScheduler;
+        this.paymentMetrics = paymentMetrics;
+        this.paymentStatusIndex = paymentStatusIndex;
+        this.paymentJournal = paymentJournal;
         this.fallBackClient = fallBackClient;
         this.defaultClientState = defaultClientState;
         this.fallbackClientState = fallbackClientState;
@@ -41,20 +68,66 @@ public class PaymentService {
 //        }
     }
 
-    public boolean processDefault(SavePaymentRequestDTO payment) {
-        boolean success = defaultClient.createSync(payment);
-        if (success) {
-            PaymentEntity entity = new PaymentEntity(
-                    payment.correlationIdAsUUID(),
-                    payment.amount(),
-                    payment.requestedAt(),
-                    true
-            );
-            paymentRepository.insert(entity);
-        } else {
-            defaultClientState.setHealthy(false);
+    @PostConstruct
+    public void init() {
+        Thread.ofVirtual().name("summary-seed").start(this::seedSummary);
+    }
+
+    // até o banco responder, o resumo vem do banco; depois a memória soma o que esta instância
+    // gravou antes do start. O write-behind espera: o que for confirmado agora não entra duas vezes
+    private void seedSummary() {
+        while (true) {
+            try {
+                List<PaymentBucketDTO> stored = paymentRepository.localBuckets();
+                paymentSummaryAggregator.seed(stored);
+                paymentWriteBehindService.resume();
+                if (!stored.isEmpty()) {
+                    System.out.println("In-memory summary seeded with " + stored.size() + " stored buckets");
+                }
+                return;
+            } catch (Exception e) {
+                System.err.println("Error seeding in-memory summary: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(SEED_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // completa com true quando o processador confirmou (200 ou 422);
+    // o processador chega reservado pelo ProcessorRouter (vaga no limite e permissão do breaker)
+    public CompletableFuture<Boolean> processAsync(Payment payment, Processor processor) throws InterruptedException {
+        PaymentClient client = processor == Processor.DEFAULT ? defaultClient : fallBackClient;
+        // lida antes da chamada: a confirmação de um pagamento anterior ao purge não entra no banco novo
+        long generation = paymentWriteBehindService.generation();
+        CompletableFuture<Boolean> call;
+        try {
+            call = client.createAsync(payment);
+        } catch (InterruptedException | RuntimeException e) {
+            processorRouter.release(processor);
+            throw e;
         }
-        return success;
+        long start = System.nanoTime();
+        paymentStatusIndex.beginCall(payment);
+        return call.handle((result, error) -> {
+            long nanos = System.nanoTime() - start;
+            boolean success = error == null && result;
+            processorRouter.record(processor, nanos, success);
+            paymentMetrics.recordProcessorCall(processor, success, nanos);
+            // um 422 de pagamento que já confirmamos não entra de novo no banco nem no resumo
+            if (success && paymentStatusIndex.confirm(payment, processor)) {
+                paymentJournal.done(payment);
+                boolean processedAtDefault = processor == Processor.DEFAULT;
+                if (paymentWriteBehindService.enqueue(new PaymentEntity(payment, processedAtDefault), generation)) {
+                    paymentSummaryAggregator.record(processedAtDefault, payment.amountCents(), payment.requestedAt());
+                }
+            } else if (!success) {
+                paymentStatusIndex.callFailed(payment);
+            }
+            return success;
+        });
     }
 
 //    public void insert(List<PaymentEntity> paymentList) {
@@ -69,114 +142,93 @@ public class PaymentService {
 //                .doOnError(e -> System.err.println("Erro ao inserir pagamento: " + e.getMessage()));
 //    }
 
-    public boolean processFallback(SavePaymentRequestDTO payment) {
-        boolean success = fallBackClient.createSync(payment);
-        if (success) {
-            PaymentEntity entity = new PaymentEntity(
-                    payment.correlationIdAsUUID(),
-                    payment.amount(),
-                    payment.requestedAt(),
-                    false
-            );
-            paymentRepository.insert(entity);
-//            PaymentQueue.getInstance().addToInsertQueue(entity);
-//            r2dbcEntityTemplate.insert(entity).block();
-        } else {
-            fallbackClientState.setHealthy(false);
-        }
-        return success;
-    }
-
-    public void add(SavePaymentRequestDTO payment) {
-        PaymentQueue.getInstance().getQueue().add(payment);
+    public boolean add(Payment payment) {
+        return PaymentQueue.getInstance().add(payment);
     }
 
-    public Mono<Boolean> process(SavePaymentRequestDTO savePaymentRequestDTO, long acceptableResponseTime) {
-//        if (defaultClientState.health() && defaultClientState.isMinimumResponseTimeUnder(0)) {
-//            return processWithDefault(savePaymentRequestDTO);
-//        }
-
-        long start = System.nanoTime();
-        PaymentQueue.getInstance().add(savePaymentRequestDTO);
-        long duration = System.nanoTime() - start;
-        if (duration > 1_000_000) {
-            System.err.println("add took too long: " + duration / 1_000_000 + " ms");
+    // duplicado responde como aceito: o pagamento original já está no pipeline
+    public boolean process(Payment payment) {
+        if (!paymentStatusIndex.tryAccept(payment)) {
+            paymentMetrics.recordIngestDuplicate();
+            return true;
+        }
+        // backlog em memória acima do limite: o pagamento fica só no journal até a fila esvaziar
+        if (paymentJournal.isSpilling()) {
+            paymentJournal.spill(payment);
+            return true;
         }
-        return Mono.just(true);
+        paymentJournal.append(payment);
+        if (PaymentQueue.getInstance().add(payment)) return true;
+        paymentJournal.done(payment);
+        paymentStatusIndex.remove(payment);
+        return false;
     }
 
-    public Mono<Boolean> process(SavePaymentRequestDTO savePaymentRequestDTO) {
-        return process(savePaymentRequestDTO, 10);
+    public PaymentStatusIndex.Status status(UUID correlationId) {
+        return paymentStatusIndex.status(correlationId.getMostSignificantBits(), correlationId.getLeastSignificantBits());
     }
 
+    // peer primeiro: sem a confirmação dele nada foi apagado aqui e a resposta é erro. Ele pode ter
+    // limpado sem conseguir responder, então as duas instâncias passam a ler do banco até o próximo purge
     public void purge() {
+        for (int attempt = 1; !peerSummaryClient.purge(); attempt++) {
+            if (attempt == PEER_PURGE_ATTEMPTS) {
+                paymentSummaryAggregator.invalidate();
+                throw new IllegalStateException("Peer did not purge after " + attempt + " attempts");
+            }
+            try {
+                Thread.sleep(PEER_PURGE_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                paymentSummaryAggregator.invalidate();
+                throw new IllegalStateException("Interrupted while purging peer", e);
+            }
+        }
+        purgeLocal();
+    }
+
+    // só o estado desta instância; é o que o /internal/purge do peer chama
+    public void purgeLocal() {
+        retryScheduler.clear();
+        paymentWriteBehindService.clear();
+        paymentSummaryAggregator.clear();
+        paymentStatusIndex.clear();
+        paymentJournal.clear();
         paymentRepository.deleteAll();
-        PaymentQueue.getInstance().queue.clear();
+        PaymentQueue.getInstance().clear();
     }
 
-    @Transactional(readOnly = true)
     public PaymentSummaryResponseDTO getPayments(Instant from, Instant to) {
-        return paymentRepository.summary(from, to);
+        long start = System.nanoTime();
+        try {
+            return summary(from, to);
+        } finally {
+            paymentMetrics.recordSummary(System.nanoTime() - start);
+        }
     }
 
-    public Mono<Boolean> processWithDefault(SavePaymentRequestDTO dto) {
-        return callProcessor(
-                dto,
-                defaultClient,
-                true,
-                defaultClientState
-        );
+    private PaymentSummaryResponseDTO summary(Instant from, Instant to) {
+        if (summaryInMemory && paymentSummaryAggregator.isAuthoritative()) {
+            PaymentSummaryResponseDTO local = paymentSummaryAggregator.summary(from, to);
+            if (!peerSummaryClient.isConfigured()) return local;
+
+            PaymentSummaryResponseDTO peer = peerSummaryClient.localSummary(from, to);
+            if (peer != null) return PaymentSummaryAggregator.merge(local, peer);
+        }
+        return getPaymentsFromDatabase(from, to);
     }
 
-    public Mono<Boolean> processWithFallback(SavePaymentRequestDTO dto) {
-        return callProcessor(
-                dto,
-                fallBackClient,
-                false,
-                fallbackClientState
-        );
+    // só o que esta instância confirmou; usado pela outra instância no merge
+    public PaymentSummaryResponseDTO getLocalPayments(Instant from, Instant to) {
+        if (!paymentSummaryAggregator.isAuthoritative()) return null;
+        return paymentSummaryAggregator.summary(from, to);
     }
 
-    private Mono<Boolean> callProcessor(
-            SavePaymentRequestDTO dto,
-            PaymentClient client,
-            boolean processedAtDefault,
-            ClientState clientState
-    ) {
-        final long start = System.nanoTime();
-
-        return client.create(dto)
-                .flatMap(success -> {
-                    if (!success) {
-                        clientState.setHealthy(false);
-                        if (clientState instanceof DefaultClientState) {
-                            PaymentQueue.getInstance().addToDefaultRetry(dto);
-                        } else if (clientState instanceof FallbackClientState) {
-                            PaymentQueue.getInstance().addToFallbackRetry(dto);
-                        }
-                        return Mono.just(true);
-                    }
-
-                    PaymentEntity entity = new PaymentEntity(
-                            dto.correlationIdAsUUID(),
-                            dto.amount(),
-                            dto.requestedAt(),
-                            processedAtDefault
-                    );
-
-                    paymentRepository.insert(entity);
-//                    return r2dbcEntityTemplate.insert(entity)
-//                            .then(Mono.defer(() -> {
-//                                int diff = (int) ((System.nanoTime() - start) / 1_000_000);
-//                                clientState.setMinResponseTime(diff);
-//                                return Mono.just(true);
-//                            }));
-                    return Mono.just(true);
-                })
-                .onErrorResume(e -> {
-                    System.err.println("Erro no fluxo: " + e.getMessage());
-                    return Mono.just(false);
-                });
+    public PaymentSummaryResponseDTO getPaymentsFromDatabase(Instant from, Instant to) {
+        if (!paymentWriteBehindService.awaitFlushed(SUMMARY_FLUSH_TIMEOUT_MILLIS)) {
+            System.err.println("Summary requested with " + paymentWriteBehindService.pending() + " payments still pending insert");
+        }
+        return paymentRepository.summary(from, to);
     }
 
 //    private void testDbConnection() {
@@ -0,0 +1,205 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.state.Processor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Estado de cada correlationId visto por esta instância, sem passar pelo banco.
+ * Tabela de endereçamento aberto (sondagem linear) com a chave nos dois longs do UUID,
+ * dividida em stripes com lock próprio para não serializar os workers.
+ * Serve para descartar duplicados no ingest, pular a chamada ao processador de pagamento
+ * já confirmado e responder GET /payments/{id}.
+ */
+@Component
+public class PaymentStatusIndex {
+
+    public enum Status {
+        ACCEPTED,
+        IN_FLIGHT,
+        CONFIRMED_DEFAULT,
+        CONFIRMED_FALLBACK;
+
+        public boolean confirmed() {
+            return this == CONFIRMED_DEFAULT || this == CONFIRMED_FALLBACK;
+        }
+    }
+
+    private static final Status[] STATUSES = Status.values();
+    private static final int STRIPES = 64;
+    private static final int INITIAL_STRIPE_CAPACITY = 1024;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public PaymentStatusIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // false quando o correlationId já existe: duplicado no ingest
+    public boolean tryAccept(Payment payment) {
+        long msb = payment.correlationIdMsb();
+        long lsb = payment.correlationIdLsb();
+        Stripe stripe = stripe(msb, lsb);
+        synchronized (stripe) {
+            return stripe.putIfAbsent(msb, lsb, Status.ACCEPTED);
+        }
+    }
+
+    // false se o pagamento já foi confirmado por algum processador ou não está no índice
+    public boolean beginCall(Payment payment) {
+        return transition(payment, Status.IN_FLIGHT);
+    }
+
+    // volta para ACCEPTED depois de uma chamada que falhou e vai para retry
+    public void callFailed(Payment payment) {
+        transition(payment, Status.ACCEPTED);
+    }
+
+    // true só na primeira confirmação; as seguintes (422 de retry) não contam de novo, e a de um
+    // pagamento que saiu do índice (purge durante a chamada) não conta nunca
+    public boolean confirm(Payment payment, Processor processor) {
+        return transition(payment, processor == Processor.DEFAULT ? Status.CONFIRMED_DEFAULT : Status.CONFIRMED_FALLBACK);
+    }
+
+    public boolean isConfirmed(Payment payment) {
+        Status status = status(payment.correlationIdMsb(), payment.correlationIdLsb());
+        return status != null && status.confirmed();
+    }
+
+    // null quando o correlationId nunca passou por esta instância
+    public Status status(long msb, long lsb) {
+        Stripe stripe = stripe(msb, lsb);
+        synchronized (stripe) {
+            int slot = stripe.find(msb, lsb);
+            return slot < 0 ? null : STATUSES[stripe.statuses[slot] - 1];
+        }
+    }
+
+    // o ingest registrou mas não conseguiu enfileirar: libera para o cliente reenviar
+    public void remove(Payment payment) {
+        long msb = payment.correlationIdMsb();
+        long lsb = payment.correlationIdLsb();
+        Stripe stripe = stripe(msb, lsb);
+        synchronized (stripe) {
+            stripe.remove(msb, lsb);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    // estado confirmado é final: nenhuma transição sai dele. Só o tryAccept cria entradas
+    private boolean transition(Payment payment, Status next) {
+        long msb = payment.correlationIdMsb();
+        long lsb = payment.correlationIdLsb();
+        Stripe stripe = stripe(msb, lsb);
+        synchronized (stripe) {
+            int slot = stripe.find(msb, lsb);
+            if (slot < 0) return false;
+            if (STATUSES[stripe.statuses[slot] - 1].confirmed()) return false;
+            stripe.statuses[slot] = code(next);
+            return true;
+        }
+    }
+
+    private Stripe stripe(long msb, long lsb) {
+        return stripes[(int) (mix(msb, lsb) >>> 58)];
+    }
+
+    private static long mix(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        return h ^ (h >>> 32);
+    }
+
+    private static byte code(Status status) {
+        return (byte) (status.ordinal() + 1);
+    }
+
+    // chaves intercaladas (msb, lsb) num único long[]; status 0 marca slot vazio
+    private static final class Stripe {
+
+        private long[] keys = new long[INITIAL_STRIPE_CAPACITY * 2];
+        private byte[] statuses = new byte[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        int find(long msb, long lsb) {
+            int mask = statuses.length - 1;
+            for (int slot = (int) mix(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+                if (statuses[slot] == 0) return -1;
+                if (keys[slot * 2] == msb && keys[slot * 2 + 1] == lsb) return slot;
+            }
+        }
+
+        boolean putIfAbsent(long msb, long lsb, Status status) {
+            if (find(msb, lsb) >= 0) return false;
+            if ((size + 1) * 4 > statuses.length * 3) grow();
+            insert(msb, lsb, code(status));
+            size++;
+            return true;
+        }
+
+        void remove(long msb, long lsb) {
+            int slot = find(msb, lsb);
+            if (slot < 0) return;
+            statuses[slot] = 0;
+            size--;
+            // reinsere o resto do cluster para não quebrar a sondagem (sem tombstones)
+            int mask = statuses.length - 1;
+            for (int next = (slot + 1) & mask; statuses[next] != 0; next = (next + 1) & mask) {
+                byte status = statuses[next];
+                long nextMsb = keys[next * 2];
+                long nextLsb = keys[next * 2 + 1];
+                statuses[next] = 0;
+                insert(nextMsb, nextLsb, status);
+            }
+        }
+
+        void clear() {
+            keys = new long[INITIAL_STRIPE_CAPACITY * 2];
+            statuses = new byte[INITIAL_STRIPE_CAPACITY];
+            size = 0;
+        }
+
+        private void insert(long msb, long lsb, byte status) {
+            int mask = statuses.length - 1;
+            int slot = (int) mix(msb, lsb) & mask;
+            while (statuses[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot * 2] = msb;
+            keys[slot * 2 + 1] = lsb;
+            statuses[slot] = status;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            byte[] oldStatuses = statuses;
+            keys = new long[oldKeys.length * 2];
+            statuses = new byte[oldStatuses.length * 2];
+            for (int slot = 0; slot < oldStatuses.length; slot++) {
+                if (oldStatuses[slot] != 0) {
+                    insert(oldKeys[slot * 2], oldKeys[slot * 2 + 1], oldStatuses[slot]);
+                }
+            }
+        }
+    }
+}
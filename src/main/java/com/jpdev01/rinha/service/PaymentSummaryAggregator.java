@@ -0,0 +1,151 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.Utils;
+import com.jpdev01.rinha.dto.PaymentBucketDTO;
+import com.jpdev01.rinha.dto.PaymentProcessorSummaryDTO;
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Resumo em memória dos pagamentos confirmados por esta instância, em buckets de 1 segundo.
+ * Cada processador tem uma Fenwick tree de contagem e valor (em centavos), então qualquer
+ * intervalo from/to sai de duas somas de prefixo.
+ * Depois de um restart o que esta instância confirmou antes está só no banco, então o resumo começa
+ * não confiável até {@link #seed} somar o que ela gravou antes do start, ou até um purge.
+ * Um purge que o peer não confirmou também o invalida até o próximo purge.
+ */
+@Component
+public class PaymentSummaryAggregator {
+
+    private static final int WINDOW_SECONDS = 1 << 17; // ~36h
+    private static final long WINDOW_MARGIN_SECONDS = 3600;
+
+    private final long baseSecond;
+    private final BucketTree defaultTree = new BucketTree(WINDOW_SECONDS);
+    private final BucketTree fallbackTree = new BucketTree(WINDOW_SECONDS);
+
+    // algum pagamento caiu fora da janela: o resumo em memória deixa de ser confiável
+    private volatile boolean outOfWindow;
+    private volatile boolean seeded;
+    private volatile boolean invalidated;
+
+    public PaymentSummaryAggregator() {
+        this.baseSecond = Instant.now().getEpochSecond() - WINDOW_MARGIN_SECONDS;
+    }
+
+    public void record(boolean processedAtDefault, long amountCents, long requestedAt) {
+        long index = requestedAt - baseSecond;
+        if (index < 0 || index >= WINDOW_SECONDS) {
+            outOfWindow = true;
+            return;
+        }
+        BucketTree tree = processedAtDefault ? defaultTree : fallbackTree;
+        tree.add((int) index, 1, amountCents);
+    }
+
+    public boolean isAuthoritative() {
+        return seeded && !outOfWindow && !invalidated;
+    }
+
+    // sem o resumo desta instância o peer também cai para o banco: os dois respondem igual
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    // o que esta instância gravou antes do start; um purge que chegou antes já zerou o resumo e vale mais
+    public synchronized void seed(List<PaymentBucketDTO> buckets) {
+        if (seeded) return;
+        for (PaymentBucketDTO bucket : buckets) {
+            long index = bucket.second() - baseSecond;
+            if (index < 0 || index >= WINDOW_SECONDS) {
+                outOfWindow = true;
+                continue;
+            }
+            BucketTree tree = bucket.processedAtDefault() ? defaultTree : fallbackTree;
+            tree.add((int) index, bucket.totalRequests(), bucket.totalAmountCents());
+        }
+        seeded = true;
+    }
+
+    public PaymentSummaryResponseDTO summary(Instant from, Instant to) {
+        long lo = Math.max(0, Utils.fromSecond(from) - baseSecond);
+        long hi = Math.min(WINDOW_SECONDS - 1, Utils.toSecond(to) - baseSecond);
+
+        return new PaymentSummaryResponseDTO(
+                defaultTree.summary(lo, hi, true),
+                fallbackTree.summary(lo, hi, false)
+        );
+    }
+
+    public synchronized void clear() {
+        defaultTree.clear();
+        fallbackTree.clear();
+        outOfWindow = false;
+        invalidated = false;
+        seeded = true;
+    }
+
+    public static PaymentSummaryResponseDTO merge(PaymentSummaryResponseDTO a, PaymentSummaryResponseDTO b) {
+        return new PaymentSummaryResponseDTO(
+                merge(a.defaultSummary(), b.defaultSummary(), true),
+                merge(a.fallbackSummary(), b.fallbackSummary(), false)
+        );
+    }
+
+    private static PaymentProcessorSummaryDTO merge(PaymentProcessorSummaryDTO a, PaymentProcessorSummaryDTO b, boolean processedAtDefault) {
+        return new PaymentProcessorSummaryDTO(
+                a.totalRequests() + b.totalRequests(),
+                a.totalAmountCents() + b.totalAmountCents(),
+                processedAtDefault
+        );
+    }
+
+    private static final class BucketTree {
+
+        private final int size;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray amounts;
+
+        BucketTree(int size) {
+            this.size = size;
+            this.counts = new AtomicLongArray(size + 1);
+            this.amounts = new AtomicLongArray(size + 1);
+        }
+
+        void add(int index, long count, long amountCents) {
+            for (int i = index + 1; i <= size; i += i & -i) {
+                counts.getAndAdd(i, count);
+                amounts.getAndAdd(i, amountCents);
+            }
+        }
+
+        PaymentProcessorSummaryDTO summary(long lo, long hi, boolean processedAtDefault) {
+            if (lo > hi) {
+                return new PaymentProcessorSummaryDTO(0, 0, processedAtDefault);
+            }
+            long count = prefix(counts, (int) hi) - prefix(counts, (int) lo - 1);
+            long cents = prefix(amounts, (int) hi) - prefix(amounts, (int) lo - 1);
+            return new PaymentProcessorSummaryDTO(count, cents, processedAtDefault);
+        }
+
+        // soma dos buckets [0, index]
+        private static long prefix(AtomicLongArray tree, int index) {
+            long sum = 0;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                sum += tree.get(i);
+            }
+            return sum;
+        }
+
+        void clear() {
+            for (int i = 0; i <= size; i++) {
+                counts.set(i, 0);
+                amounts.set(i, 0);
+            }
+        }
+    }
+}
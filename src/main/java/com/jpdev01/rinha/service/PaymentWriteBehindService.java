@@ -0,0 +1,201 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.PaymentEntity;
+import com.jpdev01.rinha.repository.PaymentRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persiste os pagamentos confirmados fora da thread do worker: acumula {@link PaymentEntity}
+ * na insertQueue e grava em lotes (INSERT multi-row) por tamanho ou por prazo.
+ * O tamanho do lote se ajusta pela latência observada de cada flush.
+ * O enqueue roda na thread da conexão com o processador e nunca bloqueia: com a insertQueue
+ * cheia (banco travado) o pagamento vai para um overflow sem limite, drenado antes da fila.
+ * O writer só começa a gravar depois de {@link #resume()}: até o resumo em memória ser semeado com
+ * o que esta instância gravou antes do start, o banco não pode receber o que ela confirmou depois.
+ * O purge troca a geração e espera a tentativa de insert em andamento: o que foi enfileirado
+ * antes dele é descartado, inclusive um lote que estava em retry. A geração vale a do início da
+ * chamada ao processador, então uma confirmação que volta depois do purge também fica de fora.
+ */
+@Service
+public class PaymentWriteBehindService {
+
+    private static final int MIN_BATCH_SIZE = 16;
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final long MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long TARGET_FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long RETRY_DELAY_MILLIS = 100;
+    // fecha a corrida entre um offer recusado e o writer parado na fila vazia
+    private static final long OVERFLOW_CHECK_MILLIS = 100;
+
+    private final PaymentRepository paymentRepository;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<PaymentEntity> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final CountDownLatch resumed = new CountDownLatch(1);
+    private volatile int batchSize = 64;
+
+    public PaymentWriteBehindService(PaymentRepository paymentRepository) {
+        this.paymentRepository = paymentRepository;
+
+        Thread.startVirtualThread(this::runWriter);
+    }
+
+    // geração atual, lida antes da chamada ao processador e devolvida no enqueue
+    public long generation() {
+        return generation.get();
+    }
+
+    // false quando houve purge desde a geração informada: o pagamento não entra no banco novo
+    public boolean enqueue(PaymentEntity entity, long generation) {
+        if (generation != this.generation.get()) return false;
+        pending.incrementAndGet();
+        // um purge entre a checagem e o offer é pego no flush, que compara com esta geração
+        entity.setGeneration(generation);
+        if (PaymentQueue.getInstance().offerToInsertQueue(entity)) return true;
+        overflow.add(entity);
+        if (overflowed.incrementAndGet() == 1) {
+            System.err.println("Insert queue full: confirmed payments overflowing until the database catches up");
+        }
+        return true;
+    }
+
+    public long pending() {
+        return pending.get();
+    }
+
+    public void resume() {
+        resumed.countDown();
+    }
+
+    public long overflowed() {
+        return overflowed.get();
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    // espera o que já foi enfileirado chegar ao banco; false se o prazo estourar
+    public boolean awaitFlushed(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            LockSupport.parkNanos(200_000);
+        }
+        return true;
+    }
+
+    // volta depois da tentativa em andamento: o deleteAll do purge não é seguido por um insert antigo
+    public void clear() {
+        generation.incrementAndGet();
+        List<PaymentEntity> discarded = new ArrayList<>();
+        PaymentQueue.getInstance().getInsertQueue().drainTo(discarded);
+        for (PaymentEntity entity; (entity = overflow.poll()) != null; ) {
+            discarded.add(entity);
+        }
+        pending.addAndGet(-discarded.size());
+        overflowed.set(0);
+        flushLock.lock();
+        flushLock.unlock();
+    }
+
+    private void runWriter() {
+        BlockingQueue<PaymentEntity> queue = PaymentQueue.getInstance().getInsertQueue();
+        List<PaymentEntity> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            resumed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        while (true) {
+            try {
+                int limit = batchSize;
+                drainOverflow(batch, limit);
+                if (batch.isEmpty()) {
+                    PaymentEntity first = queue.poll(OVERFLOW_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + MAX_DELAY_NANOS;
+
+                while (batch.size() < limit) {
+                    queue.drainTo(batch, limit - batch.size());
+                    if (batch.size() >= limit) break;
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+
+                    PaymentEntity next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                flush(batch, limit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void drainOverflow(List<PaymentEntity> batch, int limit) {
+        while (batch.size() < limit) {
+            PaymentEntity entity = overflow.poll();
+            if (entity == null) {
+                overflowed.set(0);
+                return;
+            }
+            batch.add(entity);
+        }
+    }
+
+    private void flush(List<PaymentEntity> batch, int limit) throws InterruptedException {
+        long start = System.nanoTime();
+        int size = batch.size();
+        while (!insert(batch)) {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+        }
+        tune(System.nanoTime() - start, size >= limit);
+        pending.addAndGet(-size);
+        batch.clear();
+    }
+
+    private boolean insert(List<PaymentEntity> batch) {
+        flushLock.lock();
+        try {
+            long current = generation.get();
+            batch.removeIf(entity -> entity.getGeneration() != current);
+            if (!batch.isEmpty()) paymentRepository.insertBatch(batch);
+            return true;
+        } catch (Exception e) {
+            // não descarta o lote: o pagamento já foi confirmado no processador
+            System.err.println("Error flushing " + batch.size() + " payments: " + e.getMessage());
+            return false;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void tune(long flushNanos, boolean full) {
+        int size = batchSize;
+        if (flushNanos > TARGET_FLUSH_NANOS) {
+            batchSize = Math.max(MIN_BATCH_SIZE, size / 2);
+        } else if (full && flushNanos < TARGET_FLUSH_NANOS / 2) {
+            batchSize = Math.min(MAX_BATCH_SIZE, size * 2);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.integration.http.ProcessorHttpEngine;
+import com.jpdev01.rinha.state.ClientState;
+import com.jpdev01.rinha.state.ConcurrencyLimiter;
+import com.jpdev01.rinha.state.DefaultClientState;
+import com.jpdev01.rinha.state.FallbackClientState;
+import com.jpdev01.rinha.state.LatencyEstimator;
+import com.jpdev01.rinha.state.Processor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escolhe o processador de cada pagamento pelo tempo esperado de conclusão e pela taxa.
+ * As estimativas vêm das chamadas reais de createSync, combinadas com o minResponseTime
+ * do /service-health. O default continua preferido enquanto não for mais lento que o
+ * fallback na proporção das taxas (15% / 5%). Processador com o circuit breaker aberto
+ * fica de fora. As chamadas em voo de cada processador passam por um {@link ConcurrencyLimiter}
+ * limitado ao tamanho do pool de conexões; processador com o limite cheio também fica de fora,
+ * para que um processador lento não segure os workers enquanto o outro está ocioso.
+ */
+@Component
+public class ProcessorRouter {
+
+    private static final double DEFAULT_FEE = 0.05;
+    private static final double FALLBACK_FEE = 0.15;
+    private static final double FEE_RATIO = FALLBACK_FEE / DEFAULT_FEE;
+    // abaixo disso a diferença de latência não compensa pagar a taxa maior
+    private static final double LATENCY_SLACK_MILLIS = 20;
+    private static final double TAIL_WEIGHT = 0.3;
+    private static final int INITIAL_CONCURRENCY = 8;
+
+    private final DefaultClientState defaultClientState;
+    private final FallbackClientState fallbackClientState;
+    private final LatencyEstimator defaultLatency = new LatencyEstimator();
+    private final LatencyEstimator fallbackLatency = new LatencyEstimator();
+    private final ConcurrencyLimiter defaultLimiter;
+    private final ConcurrencyLimiter fallbackLimiter;
+
+    public ProcessorRouter(DefaultClientState defaultClientState, FallbackClientState fallbackClientState,
+                           @Value("${services.processor-pool-size:32}") int maxConcurrency) {
+        this.defaultClientState = defaultClientState;
+        this.fallbackClientState = fallbackClientState;
+        // a conexão reservada para o health check não entra no limite dos pagamentos
+        int paymentConnections = Math.max(1, maxConcurrency - ProcessorHttpEngine.HEALTH_CONNECTIONS);
+        this.defaultLimiter = new ConcurrencyLimiter(INITIAL_CONCURRENCY, 1, paymentConnections);
+        this.fallbackLimiter = new ConcurrencyLimiter(INITIAL_CONCURRENCY, 1, paymentConnections);
+    }
+
+    // null quando nenhum processador está disponível ou com vaga; o escolhido já sai com
+    // a vaga no limite e a permissão do breaker, devolvidas por onResult ou release
+    public Processor choose() {
+        Processor preferred = preferred();
+        if (preferred == null) return null;
+        if (tryAcquire(preferred)) return preferred;
+
+        Processor other = preferred == Processor.DEFAULT ? Processor.FALLBACK : Processor.DEFAULT;
+        if (isAvailable(other) && tryAcquire(other)) return other;
+        return null;
+    }
+
+    // os dois cheios: espera até waitMillis por vaga no preferido, em vez de bloquear sem prazo
+    public Processor choose(long waitMillis) throws InterruptedException {
+        Processor processor = choose();
+        if (processor != null) return processor;
+
+        Processor preferred = preferred();
+        if (preferred == null) return null;
+        return tryAcquire(preferred, waitMillis) ? preferred : null;
+    }
+
+    private Processor preferred() {
+        boolean defaultAvailable = isAvailable(Processor.DEFAULT);
+        boolean fallbackAvailable = isAvailable(Processor.FALLBACK);
+
+        if (!defaultAvailable && !fallbackAvailable) return null;
+        if (!fallbackAvailable) return Processor.DEFAULT;
+        if (!defaultAvailable) return Processor.FALLBACK;
+
+        double defaultCost = expectedMillis(defaultLatency, defaultClientState);
+        double fallbackCost = expectedMillis(fallbackLatency, fallbackClientState);
+        return defaultCost <= fallbackCost * FEE_RATIO + LATENCY_SLACK_MILLIS ? Processor.DEFAULT : Processor.FALLBACK;
+    }
+
+    public boolean isAvailable(Processor processor) {
+        ClientState state = state(processor);
+        return state.health() && state.circuitBreaker().isCallPermitted();
+    }
+
+    // reserva uma chamada ao processador: vaga no limite e permissão do breaker (probe, se meio-aberto)
+    public boolean tryAcquire(Processor processor) {
+        ClientState state = state(processor);
+        if (!state.health()) return false;
+        ConcurrencyLimiter limiter = limiter(processor);
+        if (!limiter.tryAcquire()) return false;
+        return acquirePermission(state, limiter);
+    }
+
+    public boolean tryAcquire(Processor processor, long waitMillis) throws InterruptedException {
+        ClientState state = state(processor);
+        if (!state.health()) return false;
+        ConcurrencyLimiter limiter = limiter(processor);
+        if (!limiter.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) return false;
+        return acquirePermission(state, limiter);
+    }
+
+    // a chamada reservada em tryAcquire não chegou ao processador
+    public void release(Processor processor) {
+        limiter(processor).release();
+        state(processor).circuitBreaker().releasePermission();
+    }
+
+    public void record(Processor processor, long nanos, boolean success) {
+        limiter(processor).release(nanos, success);
+        estimator(processor).record(nanos);
+        state(processor).circuitBreaker().onResult(nanos, success);
+    }
+
+    public ConcurrencyLimiter limiter(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultLimiter : fallbackLimiter;
+    }
+
+    public LatencyEstimator.Estimate estimate(Processor processor) {
+        return estimator(processor).estimate();
+    }
+
+    public double expectedMillis(Processor processor) {
+        return processor == Processor.DEFAULT
+                ? expectedMillis(defaultLatency, defaultClientState)
+                : expectedMillis(fallbackLatency, fallbackClientState);
+    }
+
+    // a vaga vem antes da permissão: processador cheio não gasta probe do breaker
+    private static boolean acquirePermission(ClientState state, ConcurrencyLimiter limiter) {
+        if (state.circuitBreaker().tryAcquirePermission()) return true;
+        limiter.release();
+        return false;
+    }
+
+    private ClientState state(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultClientState : fallbackClientState;
+    }
+
+    private LatencyEstimator estimator(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultLatency : fallbackLatency;
+    }
+
+    private static double expectedMillis(LatencyEstimator latency, ClientState state) {
+        LatencyEstimator.Estimate estimate = latency.estimate();
+        int minResponseTime = state.getMinResponseTime();
+        if (estimate.samples() == 0) return minResponseTime;
+
+        double observed = (1 - TAIL_WEIGHT) * estimate.ewmaMillis() + TAIL_WEIGHT * estimate.p99Millis();
+        return Math.max(observed, minResponseTime);
+    }
+}
@@ -0,0 +1,198 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.state.Processor;
+import com.jpdev01.rinha.state.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Reagenda pagamentos que falharam com backoff exponencial e jitter.
+ * Quando vence o prazo, o pagamento só volta para a lane de retry se houver token no
+ * orçamento global do processador; sem token ele fica estacionado até o orçamento recarregar.
+ * Assim o custo de retry fica limitado independente do tamanho da fila.
+ * O estacionamento tem tamanho fixo por processador: o excedente vai para o journal (quando
+ * ligado) e volta pela lane FRESH; sem journal, vai direto para a lane de retry, que é limitada.
+ */
+@Component
+public class RetryScheduler {
+
+    private static final long BASE_BACKOFF_MILLIS = 20;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+    private static final double RETRIES_PER_SECOND = 50;
+    private static final double RETRY_BURST = 100;
+    private static final long PARKING_DRAIN_INTERVAL_MILLIS = 50;
+    // ~80s de orçamento de retry por processador; mais que isso não adianta segurar na heap
+    static final int PARKING_CAPACITY = 4_096;
+
+    private final DelayQueue<RetryTask> delayed = new DelayQueue<>();
+    private final Map<Payment, Integer> attempts = new ConcurrentHashMap<>();
+    private final TokenBucket defaultBudget = new TokenBucket(RETRIES_PER_SECOND, RETRY_BURST);
+    private final TokenBucket fallbackBudget = new TokenBucket(RETRIES_PER_SECOND, RETRY_BURST);
+    private final ArrayDeque<Payment> defaultParking = new ArrayDeque<>();
+    private final ArrayDeque<Payment> fallbackParking = new ArrayDeque<>();
+    private volatile Predicate<Payment> overflow = payment -> false;
+    private Thread delayedThread;
+    private Thread parkingThread;
+
+    @PostConstruct
+    public synchronized void start() {
+        if (delayedThread != null) return;
+        delayedThread = Thread.ofVirtual().name("retry-delayed").start(this::runDelayed);
+        parkingThread = Thread.ofVirtual().name("retry-parking").start(this::runParking);
+    }
+
+    // espera as threads saírem: depois disso nada mais vai para o PaymentQueue
+    @PreDestroy
+    public synchronized void close() throws InterruptedException {
+        if (delayedThread == null) return;
+        delayedThread.interrupt();
+        parkingThread.interrupt();
+        delayedThread.join();
+        parkingThread.join();
+        delayedThread = null;
+        parkingThread = null;
+    }
+
+    public void schedule(Payment payment, Processor processor) {
+        int attempt = attempts.merge(payment, 1, Integer::sum);
+        delayed.put(new RetryTask(payment, processor, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis(attempt))));
+    }
+
+    // recebe o que não cabe no estacionamento; false se não guardou
+    public void onOverflow(Predicate<Payment> overflow) {
+        this.overflow = overflow;
+    }
+
+    public void onSuccess(Payment payment) {
+        attempts.remove(payment);
+    }
+
+    public int attempts(Payment payment) {
+        return attempts.getOrDefault(payment, 0);
+    }
+
+    public int delayedSize() {
+        return delayed.size();
+    }
+
+    public int parkedSize(Processor processor) {
+        ArrayDeque<Payment> parking = parking(processor);
+        synchronized (parking) {
+            return parking.size();
+        }
+    }
+
+    public void clear() {
+        delayed.clear();
+        attempts.clear();
+        synchronized (defaultParking) {
+            defaultParking.clear();
+        }
+        synchronized (fallbackParking) {
+            fallbackParking.clear();
+        }
+    }
+
+    // backoff exponencial com "equal jitter": metade fixa, metade aleatória
+    static long backoffMillis(int attempt) {
+        long exp = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private void runDelayed() {
+        while (true) {
+            try {
+                RetryTask task = delayed.take();
+                ArrayDeque<Payment> parking = parking(task.processor());
+                boolean released;
+                boolean parked = false;
+                synchronized (parking) {
+                    // mantém a ordem: se já tem gente estacionada, entra no fim da fila
+                    released = parking.isEmpty() && budget(task.processor()).tryAcquire();
+                    if (!released && parking.size() < PARKING_CAPACITY) {
+                        parking.addLast(task.payment());
+                        parked = true;
+                    }
+                }
+                if (released) {
+                    release(task.payment(), task.processor());
+                } else if (!parked && !overflow.test(task.payment())) {
+                    // sem journal: fura o orçamento, o put na lane cheia segura esta thread
+                    release(task.payment(), task.processor());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Error scheduling retry: " + e.getMessage());
+            }
+        }
+    }
+
+    private void runParking() {
+        while (true) {
+            try {
+                Thread.sleep(PARKING_DRAIN_INTERVAL_MILLIS);
+                drainParking(Processor.DEFAULT);
+                drainParking(Processor.FALLBACK);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void drainParking(Processor processor) {
+        ArrayDeque<Payment> parking = parking(processor);
+        TokenBucket budget = budget(processor);
+        while (true) {
+            Payment payment;
+            synchronized (parking) {
+                if (parking.isEmpty() || !budget.tryAcquire()) return;
+                payment = parking.pollFirst();
+            }
+            release(payment, processor);
+        }
+    }
+
+    private void release(Payment payment, Processor processor) {
+        if (processor == Processor.DEFAULT) {
+            PaymentQueue.getInstance().addToDefaultRetry(payment);
+        } else {
+            PaymentQueue.getInstance().addToFallbackRetry(payment);
+        }
+    }
+
+    private TokenBucket budget(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultBudget : fallbackBudget;
+    }
+
+    private ArrayDeque<Payment> parking(Processor processor) {
+        return processor == Processor.DEFAULT ? defaultParking : fallbackParking;
+    }
+
+    private record RetryTask(Payment payment, Processor processor, long dueAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtNanos, ((RetryTask) other).dueAtNanos);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.jpdev01.rinha.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpdev01.rinha.codec.PaymentCodec;
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.integration.dto.HealthResponseDTO;
+import com.jpdev01.rinha.integration.http.HttpConnectionPool;
+import com.jpdev01.rinha.integration.http.ProcessorHttpEngine;
+import com.jpdev01.rinha.repository.PaymentRepository;
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
+import com.jpdev01.rinha.service.LaneScheduler.Slot;
+import com.jpdev01.rinha.state.Processor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aquecimento no start: o /health só responde UP quando termina, então o nginx não manda carga
+ * para uma JVM fria. Pagamentos sintéticos passam por parse, serialização da chamada ao processador,
+ * índice de status, fila e resumo (instâncias próprias de fila e agregador, nada chega aos
+ * processadores nem ao banco) até bater warmup.iterations e o JIT parar de compilar, ou até
+ * warmup.max-millis. Em paralelo abre as conexões do banco e espera as keep-alive dos processadores.
+ * warmup.enabled=false sobe direto.
+ */
+@Service
+public class WarmupService {
+
+    private static final int ROUND = 1000;
+    private static final int QUEUE_CAPACITY = 1 << 4;
+    private static final long CONNECTION_POLL_MILLIS = 20;
+
+    private final ProcessorHttpEngine processorHttpEngine;
+    private final PaymentRepository paymentRepository;
+    private final PaymentStatusIndex paymentStatusIndex;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.iterations:20000}")
+    private int iterations;
+
+    @Value("${warmup.max-millis:5000}")
+    private long maxMillis;
+
+    @Value("${warmup.db-connections:4}")
+    private int dbConnections;
+
+    @Value("${persistence.mode:jdbc}")
+    private String persistenceMode;
+
+    private volatile boolean ready;
+
+    public WarmupService(ProcessorHttpEngine processorHttpEngine, PaymentRepository paymentRepository, PaymentStatusIndex paymentStatusIndex, DataSource dataSource, ObjectMapper objectMapper) {
+        this.processorHttpEngine = processorHttpEngine;
+        this.paymentRepository = paymentRepository;
+        this.paymentStatusIndex = paymentStatusIndex;
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+        Thread.ofVirtual().name("warmup").start(this::run);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        long compileStart = compileMillis(jit);
+        try {
+            Thread connections = Thread.ofVirtual().name("warmup-connections").start(() -> openConnections(deadline));
+
+            int done = 0;
+            long lastCompile = compileStart;
+            LaneScheduler queue = new LaneScheduler(QUEUE_CAPACITY);
+            PaymentSummaryAggregator aggregator = new PaymentSummaryAggregator();
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < ROUND; i++) {
+                    exercise(queue, aggregator);
+                }
+                done += ROUND;
+                long compile = compileMillis(jit);
+                // uma rodada inteira sem compilação nova depois do mínimo: os caminhos já estão no C2
+                if (done >= iterations && compile == lastCompile) break;
+                lastCompile = compile;
+            }
+            long exercised = System.nanoTime();
+
+            connections.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            connections.interrupt();
+
+            HttpConnectionPool.Stats defaultPool = processorHttpEngine.pool(Processor.DEFAULT).stats();
+            HttpConnectionPool.Stats fallbackPool = processorHttpEngine.pool(Processor.FALLBACK).stats();
+            System.out.println("Warm-up finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms: "
+                    + done + " synthetic payments in " + TimeUnit.NANOSECONDS.toMillis(exercised - start) + " ms, JIT " + (compileMillis(jit) - compileStart) + " ms during warm-up ("
+                    + compileMillis(jit) + " ms total), processor connections default " + defaultPool.open() + "/" + defaultPool.size()
+                    + " fallback " + fallbackPool.open() + "/" + fallbackPool.size());
+        } catch (Exception e) {
+            // aquecimento é otimização: qualquer erro só adianta o UP
+            System.err.println("Warm-up aborted: " + e.getMessage());
+        } finally {
+            ready = true;
+        }
+    }
+
+    // o caminho de um pagamento, sem efeito fora daqui: o status sintético sai do índice na hora
+    private void exercise(LaneScheduler queue, PaymentSummaryAggregator aggregator) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Payment synthetic = new Payment(random.nextLong(), random.nextLong(), random.nextLong(1, 100_000), PaymentCodec.now());
+        String body = "{\"correlationId\":\"" + synthetic.correlationId() + "\",\"amount\":" + synthetic.amountCents() / 100.0 + "}";
+        Payment payment = PaymentCodec.parse(body.getBytes(StandardCharsets.US_ASCII));
+
+        if (paymentStatusIndex.tryAccept(payment)) paymentStatusIndex.remove(payment);
+
+        queue.offer(Lane.FRESH, payment);
+        Slot slot = new Slot();
+        queue.take(slot);
+
+        HttpConnectionPool pool = processorHttpEngine.pool(Processor.DEFAULT);
+        int length = PaymentCodec.encodedLength(slot.payment());
+        byte[] request = pool.post("/payments", length);
+        PaymentCodec.encode(slot.payment(), request, request.length - length);
+        objectMapper.readValue("{\"failing\":false,\"minResponseTime\":" + length + "}", HealthResponseDTO.class);
+
+        aggregator.record(random.nextBoolean(), payment.amountCents(), payment.requestedAt());
+        objectMapper.writeValueAsBytes(aggregator.summary(null, null));
+    }
+
+    // pool do Hikari com várias conexões abertas, resumo do repositório (qualquer modo) e keep-alive dos processadores
+    private void openConnections(long deadline) {
+        try {
+            if ("jdbc".equalsIgnoreCase(persistenceMode)) {
+                List<Connection> held = new ArrayList<>(dbConnections);
+                try {
+                    // seguradas ao mesmo tempo: o Hikari precisa abrir uma por pedido
+                    for (int i = 0; i < dbConnections; i++) {
+                        Connection connection = dataSource.getConnection();
+                        held.add(connection);
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SELECT 1");
+                        }
+                    }
+                } finally {
+                    for (Connection connection : held) {
+                        connection.close();
+                    }
+                }
+            }
+            for (int i = 0; i < dbConnections; i++) {
+                paymentRepository.summary(null, null);
+            }
+        } catch (Exception e) {
+            System.err.println("Warm-up could not open database connections: " + e.getMessage());
+        }
+
+        try {
+            // as conexões keep-alive são abertas pelo próprio pool no start; aqui só esperamos
+            while (System.nanoTime() < deadline && !(allOpen(Processor.DEFAULT) && allOpen(Processor.FALLBACK))) {
+                Thread.sleep(CONNECTION_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean allOpen(Processor processor) {
+        HttpConnectionPool.Stats stats = processorHttpEngine.pool(processor).stats();
+        return stats.open() == stats.size();
+    }
+
+    private static long compileMillis(CompilationMXBean jit) {
+        return jit != null && jit.isCompilationTimeMonitoringSupported() ? jit.getTotalCompilationTime() : 0;
+    }
+}
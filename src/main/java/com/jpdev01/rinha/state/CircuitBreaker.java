@@ -0,0 +1,149 @@
+package com.jpdev01.rinha.state;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker por processador (fechado / aberto / meio-aberto) alimentado pelas chamadas
+ * reais de pagamento. Mantém uma janela deslizante das últimas {@link #WINDOW_SIZE} chamadas
+ * e abre quando a taxa de falha ou de chamadas lentas passa do limite.
+ * O estado é publicado como um {@link Snapshot} imutável: o caminho quente lê um único volatile.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public record Snapshot(State state, double failureRate, double slowCallRate, long openedAtMillis) {
+    }
+
+    private static final int WINDOW_SIZE = 50;
+    private static final int MINIMUM_CALLS = 20;
+    private static final double FAILURE_RATE_THRESHOLD = 0.5;
+    private static final double SLOW_CALL_RATE_THRESHOLD = 0.8;
+    private static final long SLOW_CALL_NANOS = 1_000_000_000L;
+    private static final long OPEN_WAIT_MILLIS = 1_000;
+    private static final int HALF_OPEN_PROBES = 3;
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int windowIndex;
+    private int windowCount;
+    private int failures;
+    private int slowCalls;
+
+    private final AtomicInteger probesIssued = new AtomicInteger();
+    private int probesSucceeded;
+
+    private volatile Snapshot snapshot = new Snapshot(State.CLOSED, 0, 0, 0);
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // consulta sem consumir permissão de probe
+    public boolean isCallPermitted() {
+        Snapshot current = snapshot;
+        return switch (current.state()) {
+            case CLOSED -> true;
+            case OPEN -> System.currentTimeMillis() - current.openedAtMillis() >= OPEN_WAIT_MILLIS;
+            case HALF_OPEN -> probesIssued.get() < HALF_OPEN_PROBES;
+        };
+    }
+
+    // toda permissão concedida precisa de um onResult (ou releasePermission) depois
+    public boolean tryAcquirePermission() {
+        Snapshot current = snapshot;
+        switch (current.state()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - current.openedAtMillis() < OPEN_WAIT_MILLIS) return false;
+                toHalfOpen(current);
+                // fallthrough
+            default:
+                if (probesIssued.incrementAndGet() <= HALF_OPEN_PROBES) return true;
+                probesIssued.decrementAndGet();
+                return false;
+        }
+    }
+
+    // devolve uma permissão cuja chamada nem saiu; sem isso o probe meio-aberto fica preso
+    public void releasePermission() {
+        if (snapshot.state() != State.HALF_OPEN) return;
+        probesIssued.updateAndGet(issued -> issued > 0 ? issued - 1 : 0);
+    }
+
+    public synchronized void onResult(long nanos, boolean success) {
+        switch (snapshot.state()) {
+            case CLOSED -> {
+                byte outcome = (byte) ((success ? 0 : FAILED) | (nanos >= SLOW_CALL_NANOS ? SLOW : 0));
+                record(outcome);
+                double failureRate = (double) failures / windowCount;
+                double slowCallRate = (double) slowCalls / windowCount;
+                if (windowCount >= MINIMUM_CALLS
+                        && (failureRate >= FAILURE_RATE_THRESHOLD || slowCallRate >= SLOW_CALL_RATE_THRESHOLD)) {
+                    open(failureRate, slowCallRate);
+                } else {
+                    snapshot = new Snapshot(State.CLOSED, failureRate, slowCallRate, 0);
+                }
+            }
+            case HALF_OPEN -> {
+                if (!success || nanos >= SLOW_CALL_NANOS) {
+                    open(1, 0);
+                    return;
+                }
+                if (++probesSucceeded >= HALF_OPEN_PROBES) {
+                    resetWindow();
+                    snapshot = new Snapshot(State.CLOSED, 0, 0, 0);
+                }
+            }
+            case OPEN -> {
+                // resposta atrasada de uma chamada feita antes de abrir: ignora
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        resetWindow();
+        snapshot = new Snapshot(State.CLOSED, 0, 0, 0);
+    }
+
+    private synchronized void toHalfOpen(Snapshot expected) {
+        if (snapshot != expected) return;
+        probesIssued.set(0);
+        probesSucceeded = 0;
+        snapshot = new Snapshot(State.HALF_OPEN, expected.failureRate(), expected.slowCallRate(), expected.openedAtMillis());
+    }
+
+    private void open(double failureRate, double slowCallRate) {
+        snapshot = new Snapshot(State.OPEN, failureRate, slowCallRate, System.currentTimeMillis());
+    }
+
+    private void record(byte outcome) {
+        if (windowCount == WINDOW_SIZE) {
+            byte evicted = window[windowIndex];
+            if ((evicted & FAILED) != 0) failures--;
+            if ((evicted & SLOW) != 0) slowCalls--;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+        if ((outcome & FAILED) != 0) failures++;
+        if ((outcome & SLOW) != 0) slowCalls++;
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        failures = 0;
+        slowCalls = 0;
+        probesIssued.set(0);
+        probesSucceeded = 0;
+    }
+}
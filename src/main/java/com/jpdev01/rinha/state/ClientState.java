@@ -12,6 +12,8 @@ public interface ClientState {
     int getMinResponseTime();
     void setMinResponseTime(int minResponseTime);
 
+    CircuitBreaker circuitBreaker();
+
     default boolean isMinimumResponseTimeUnder(long expectedResponseTime) {
         return getMinResponseTime() <= expectedResponseTime;
     }
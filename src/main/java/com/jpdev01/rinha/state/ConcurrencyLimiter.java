@@ -0,0 +1,146 @@
+package com.jpdev01.rinha.state;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limite adaptativo de chamadas em voo para um processador, no estilo gradient/AIMD.
+ * Cada resposta compara o RTT com o menor RTT recente (latência sem fila): enquanto os dois
+ * estão próximos o limite cresce ~sqrt(limite) por amostra; quando o RTT sobe o limite encolhe
+ * na mesma proporção. Falha ou timeout corta o limite multiplicativamente.
+ * acquire bloqueia enquanto as chamadas em voo estiverem no limite; tryAcquire não bloqueia
+ * ou espera no máximo o timeout dado.
+ */
+public class ConcurrencyLimiter {
+
+    public record Snapshot(int limit, int inFlight, double minRttMillis, double rttMillis) {
+    }
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    // RTT até 1.5x o mínimo ainda conta como sem fila (jitter do processador)
+    private static final double TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double RTT_ALPHA = 0.1;
+    // o mínimo é de uma janela deslizante: se o processador ficar mais lento de vez, o limite acompanha
+    private static final long MIN_RTT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private double rttNanos;
+    private long windowMinRtt = Long.MAX_VALUE;
+    private long previousWindowMinRtt = Long.MAX_VALUE;
+    private long windowStart = System.nanoTime();
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                released.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) return false;
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) return false;
+                nanos = released.awaitNanos(nanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // libera sem amostra: a chamada nem chegou a sair
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long nanos, boolean success) {
+        lock.lock();
+        try {
+            // o limite só sobe se estava sendo usado; com pouca carga o RTT não diz nada sobre capacidade
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+            if (success) {
+                onSample(nanos, saturated);
+            } else {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            long minRtt = minRtt();
+            return new Snapshot((int) limit, inFlight,
+                    minRtt == Long.MAX_VALUE ? 0 : minRtt / 1e6, rttNanos / 1e6);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(long nanos, boolean saturated) {
+        long now = System.nanoTime();
+        if (now - windowStart > MIN_RTT_WINDOW_NANOS) {
+            previousWindowMinRtt = windowMinRtt;
+            windowMinRtt = Long.MAX_VALUE;
+            windowStart = now;
+        }
+        windowMinRtt = Math.min(windowMinRtt, Math.max(1, nanos));
+        rttNanos = rttNanos == 0 ? nanos : rttNanos + RTT_ALPHA * (nanos - rttNanos);
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * minRtt() / rttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && !saturated) return;
+
+        double next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    private long minRtt() {
+        return Math.min(windowMinRtt, previousWindowMinRtt);
+    }
+}
@@ -7,9 +7,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Component
 public class DefaultClientState implements ClientState {
 
-    private AtomicBoolean healthy;
-    private long lastHealthCheckRun;
-    private int minResponseTime;
+    private final AtomicBoolean healthy;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private volatile long lastHealthCheckRun;
+    private volatile int minResponseTime;
 
     public DefaultClientState() {
         this.healthy = new AtomicBoolean(false);
@@ -46,4 +47,9 @@ public class DefaultClientState implements ClientState {
     public void setMinResponseTime(int minResponseTime) {
         this.minResponseTime = minResponseTime;
     }
+
+    @Override
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
 }
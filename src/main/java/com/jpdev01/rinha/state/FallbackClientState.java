@@ -7,9 +7,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Component
 public class FallbackClientState implements ClientState {
 
-    private AtomicBoolean healthy;
-    private int minResponseTime;
-    private long lastHealthCheckRun;
+    private final AtomicBoolean healthy;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private volatile int minResponseTime;
+    private volatile long lastHealthCheckRun;
 
     public FallbackClientState() {
         this.healthy = new AtomicBoolean(false);
@@ -46,4 +47,9 @@ public class FallbackClientState implements ClientState {
     public void setMinResponseTime(int minResponseTime) {
         this.minResponseTime = minResponseTime;
     }
+
+    @Override
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
 }
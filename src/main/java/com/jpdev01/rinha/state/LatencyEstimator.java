@@ -0,0 +1,85 @@
+package com.jpdev01.rinha.state;
+
+import com.jpdev01.rinha.metrics.LatencyHistogram;
+import com.jpdev01.rinha.metrics.LatencyHistogram.Snapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimativa de latência de um processador a partir das chamadas reais:
+ * EWMA mais p50/p99 das últimas ~256 amostras, tirados do mesmo {@link LatencyHistogram}
+ * das métricas (diferença entre dois snapshots), então router e /admin/metrics concordam.
+ * O record não pega lock nem aloca: um incremento no histograma e um CAS no EWMA. Os percentis
+ * são recalculados a cada {@link #WINDOW} amostras e, antes disso, nas potências de 2.
+ */
+public class LatencyEstimator {
+
+    public record Estimate(double ewmaMillis, double p50Millis, double p99Millis, long samples) {
+    }
+
+    private record Percentiles(double p50Millis, double p99Millis) {
+    }
+
+    private static final Percentiles NO_PERCENTILES = new Percentiles(0, 0);
+    private static final double ALPHA = 0.2;
+    // a janela tem entre WINDOW e 2 * WINDOW amostras
+    private static final int WINDOW = 128;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong samples = new AtomicLong();
+    // NaN até a primeira amostra
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+    // início da janela atual e da próxima; só mudam no refresh
+    private Snapshot older;
+    private Snapshot newer;
+    private volatile Percentiles percentiles = NO_PERCENTILES;
+
+    public LatencyEstimator() {
+        older = histogram.snapshot();
+        newer = older;
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+        updateEwma(nanos / 1_000_000.0);
+        long count = samples.incrementAndGet();
+        if (count % WINDOW == 0 || (count < WINDOW && Long.bitCount(count) == 1)) {
+            refresh(count);
+        }
+    }
+
+    public Estimate estimate() {
+        Percentiles current = percentiles;
+        double ewma = Double.longBitsToDouble(ewmaBits.get());
+        return new Estimate(Double.isNaN(ewma) ? 0 : ewma, current.p50Millis(), current.p99Millis(), samples.get());
+    }
+
+    // o histograma é cumulativo: o reset só move o começo da janela
+    public synchronized void reset() {
+        older = histogram.snapshot();
+        newer = older;
+        samples.set(0);
+        ewmaBits.set(Double.doubleToRawLongBits(Double.NaN));
+        percentiles = NO_PERCENTILES;
+    }
+
+    private void updateEwma(double millis) {
+        while (true) {
+            long bits = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(bits);
+            double next = Double.isNaN(ewma) ? millis : ewma + ALPHA * (millis - ewma);
+            if (ewmaBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) return;
+        }
+    }
+
+    private synchronized void refresh(long count) {
+        Snapshot now = histogram.snapshot();
+        Snapshot window = now.minus(older);
+        percentiles = new Percentiles(window.quantileNanos(0.50) / 1_000_000.0, window.quantileNanos(0.99) / 1_000_000.0);
+        if (count % WINDOW == 0) {
+            older = newer;
+            newer = now;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.jpdev01.rinha.state;
+
+public enum Processor {
+    DEFAULT,
+    FALLBACK
+}
@@ -0,0 +1,159 @@
+package com.jpdev01.rinha.codec;
+
+import com.jpdev01.rinha.entity.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentCodecTest {
+
+    private static final String ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+    @Test
+    void parsesCorrelationIdAndAmount() {
+        long before = PaymentCodec.now();
+        Payment payment = parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.90}");
+
+        assertThat(payment.correlationId()).isEqualTo(UUID.fromString(ID));
+        assertThat(payment.amountCents()).isEqualTo(1990);
+        assertThat(payment.requestedAt()).isBetween(before, PaymentCodec.now());
+    }
+
+    @Test
+    void acceptsAnyFieldOrderWhitespaceAndUnknownFields() {
+        Payment payment = parse("{ \"note\" : \"amount\",\n \"amount\" : 7.5 ,\t\"correlationId\": \"" + ID.toUpperCase() + "\", \"n\": 1 }");
+
+        assertThat(payment.correlationId()).isEqualTo(UUID.fromString(ID));
+        assertThat(payment.amountCents()).isEqualTo(750);
+    }
+
+    @Test
+    void skipsEscapedQuotesInsideUnknownStrings() {
+        // {"amount":2.00,"note":"x \"amount\":9.00, \\",...}: a aspa escapada não fecha a string
+        Payment payment = parse("{\"amount\":2.00,\"note\":\"x \\\"amount\\\":9.00, \\\\\",\"correlationId\":\"" + ID + "\"}");
+
+        assertThat(payment.correlationId()).isEqualTo(UUID.fromString(ID));
+        assertThat(payment.amountCents()).isEqualTo(200);
+    }
+
+    @Test
+    void skipsNestedObjectsAndArraysOfUnknownFields() {
+        Payment payment = parse("{\"meta\":{\"amount\":1,\"tags\":[{\"correlationId\":\"}\"}]},\"list\":[1,[2]],"
+                + "\"correlationId\":\"" + ID + "\",\"amount\":3.50}");
+
+        assertThat(payment.correlationId()).isEqualTo(UUID.fromString(ID));
+        assertThat(payment.amountCents()).isEqualTo(350);
+        // o amount aninhado não conta: sem o de cima o corpo continua inválido
+        assertThatThrownBy(() -> parse("{\"meta\":{\"amount\":1},\"correlationId\":\"" + ID + "\"}")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> parse("{\"meta\":{\"amount\":1,\"correlationId\":\"" + ID + "\"}")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void convertsAmountToCents() {
+        assertThat(amount("19")).isEqualTo(1900);
+        assertThat(amount("0.01")).isEqualTo(1);
+        assertThat(amount("0.1")).isEqualTo(10);
+        assertThat(amount("123456.78")).isEqualTo(12345678);
+        // zeros além de duas casas não mudam o valor
+        assertThat(amount("1.990")).isEqualTo(199);
+        assertThat(amount("0.10000")).isEqualTo(10);
+    }
+
+    @Test
+    void rejectsAmountsThatAreNotExactCents() {
+        // truncar ou ler só a mantissa faria o processador e o resumo divergirem do que o cliente mandou
+        assertThatThrownBy(() -> amount("1.999")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("0.001")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("1e3")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("1E2")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("1.5e1")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("1.")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("-1.00")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> amount("99999999999999999999")).hasMessageContaining("amount");
+    }
+
+    @Test
+    void parsesASliceOfALargerBuffer() {
+        String body = "{\"correlationId\":\"" + ID + "\",\"amount\":1.00}";
+        byte[] request = ("POST /payments HTTP/1.1\r\n\r\n" + body + "garbage").getBytes(StandardCharsets.US_ASCII);
+        int offset = request.length - body.length() - "garbage".length();
+
+        Payment payment = PaymentCodec.parse(request, offset, body.length());
+        assertThat(payment.correlationId()).isEqualTo(UUID.fromString(ID));
+        assertThat(payment.amountCents()).isEqualTo(100);
+    }
+
+    @Test
+    void rejectsInvalidBodies() {
+        assertThatThrownBy(() -> parse("{\"amount\":1.00}")).hasMessageContaining("correlationId");
+        assertThatThrownBy(() -> parse("{\"correlationId\":\"" + ID + "\"}")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> parse("{\"correlationId\":\"" + ID + "\",\"amount\":\"x\"}")).hasMessageContaining("amount");
+        assertThatThrownBy(() -> parse("{\"correlationId\":\"" + ID.substring(1) + "\",\"amount\":1}")).hasMessageContaining("correlationId");
+        assertThatThrownBy(() -> parse("{\"correlationId\":\"" + ID.replace('a', 'g') + "\",\"amount\":1}")).hasMessageContaining("correlationId");
+        assertThatThrownBy(() -> parse("{\"correlationId\":1,\"amount\":1}")).hasMessageContaining("correlationId");
+        assertThatThrownBy(() -> parse("{\"correlationId\"")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void encodesTheProcessorPayload() {
+        UUID id = UUID.fromString(ID);
+        Payment payment = new Payment(id.getMostSignificantBits(), id.getLeastSignificantBits(), 1905, 1_700_000_000L);
+
+        assertThat(new String(PaymentCodec.toBytes(payment), StandardCharsets.US_ASCII))
+                .isEqualTo("{\"correlationId\":\"" + ID + "\",\"amount\":19.05,\"requestedAt\":\"2023-11-14T22:13:20Z\"}");
+    }
+
+    @Test
+    void encodesSmallAmountsAndOlderSecondsAfterNewerOnes() {
+        UUID id = UUID.fromString(ID);
+        long now = PaymentCodec.now();
+        PaymentCodec.toBytes(new Payment(id.getMostSignificantBits(), id.getLeastSignificantBits(), 1, now));
+
+        // retry de um segundo anterior ao que está em cache
+        String retry = new String(PaymentCodec.toBytes(new Payment(id.getMostSignificantBits(), id.getLeastSignificantBits(), 5, now - 10)), StandardCharsets.US_ASCII);
+        assertThat(retry).contains("\"amount\":0.05,");
+        assertThat(retry).contains("\"requestedAt\":\"" + Instant.ofEpochSecond(now - 10) + "\"");
+    }
+
+    // o corpo é escrito depois dos cabeçalhos da requisição: o tamanho previsto tem que fechar exato
+    @Test
+    void encodesAtAnOffsetWithThePredictedLength() {
+        UUID id = UUID.fromString(ID);
+        for (long cents : new long[]{0, 5, 99, 100, 1905, 123456789}) {
+            Payment payment = new Payment(id.getMostSignificantBits(), id.getLeastSignificantBits(), cents, 1_700_000_000L);
+            int length = PaymentCodec.encodedLength(payment);
+            byte[] request = new byte[7 + length];
+
+            assertThat(PaymentCodec.encode(payment, request, 7)).isEqualTo(request.length);
+            assertThat(new String(request, 7, length, StandardCharsets.US_ASCII))
+                    .isEqualTo(new String(PaymentCodec.toBytes(payment), StandardCharsets.US_ASCII));
+            assertThat(PaymentCodec.parse(request, 7, length).amountCents()).isEqualTo(cents);
+        }
+    }
+
+    @Test
+    void encodedPayloadParsesBackToTheSamePayment() {
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            Payment payment = new Payment(id.getMostSignificantBits(), id.getLeastSignificantBits(), i * 1237L, PaymentCodec.now());
+            Payment parsed = PaymentCodec.parse(PaymentCodec.toBytes(payment));
+
+            assertThat(parsed.correlationId()).isEqualTo(id);
+            assertThat(parsed.amountCents()).isEqualTo(payment.amountCents());
+            assertThat(PaymentCodec.uuid(payment.correlationIdMsb(), payment.correlationIdLsb())).isEqualTo(id.toString());
+        }
+    }
+
+    private static Payment parse(String body) {
+        return PaymentCodec.parse(body.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long amount(String amount) {
+        return parse("{\"correlationId\":\"" + ID + "\",\"amount\":" + amount + "}").amountCents();
+    }
+}
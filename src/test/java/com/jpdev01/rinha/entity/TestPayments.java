@@ -0,0 +1,15 @@
+package com.jpdev01.rinha.entity;
+
+import java.util.UUID;
+
+// pagamento com correlationId aleatório, para os testes que só precisam de ids distintos
+public final class TestPayments {
+
+    private TestPayments() {
+    }
+
+    public static Payment payment(long amountCents, long requestedAt) {
+        UUID id = UUID.randomUUID();
+        return new Payment(id.getMostSignificantBits(), id.getLeastSignificantBits(), amountCents, requestedAt);
+    }
+}
@@ -0,0 +1,52 @@
+package com.jpdev01.rinha.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    // abaixo de 64 unidades o bucket tem 1µs fixo; daí até ~69s o erro fica em ~3%
+    @Test
+    void quantilesStayWithinThreePercentUpToAMinute() {
+        for (long nanos : new long[]{TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(3), TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(60)}) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(nanos);
+
+            assertThat((double) histogram.snapshot().quantileNanos(0.99)).isCloseTo(nanos, within(nanos * 0.03));
+        }
+    }
+
+    @Test
+    void indexCoversTheWholeArrayAndClampsAboveTheRange() {
+        int last = new LatencyHistogram().snapshot().counts().length - 1;
+        assertThat(LatencyHistogram.index(TimeUnit.SECONDS.toNanos(68))).isEqualTo(last);
+        assertThat(LatencyHistogram.index(TimeUnit.HOURS.toNanos(1))).isEqualTo(last);
+        assertThat(LatencyHistogram.index(Long.MAX_VALUE)).isEqualTo(last);
+
+        // buckets contíguos e crescentes: o índice nunca pula nem volta
+        int previous = 0;
+        for (long nanos = 0; nanos < TimeUnit.SECONDS.toNanos(68); nanos += nanos / 64 + 1) {
+            int index = LatencyHistogram.index(nanos);
+            assertThat(index).isBetween(previous, previous + 1);
+            previous = index;
+        }
+    }
+
+    @Test
+    void intervalsComeFromSnapshotDifferences() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(first);
+        assertThat(interval.count()).isEqualTo(2);
+        assertThat(interval.sumNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat((double) interval.quantileNanos(0.5)).isCloseTo(1e8, within(3e6));
+    }
+}
@@ -0,0 +1,175 @@
+package com.jpdev01.rinha.repository;
+
+import com.jpdev01.rinha.dto.PaymentBucketDTO;
+import com.jpdev01.rinha.dto.PaymentSummaryResponseDTO;
+import com.jpdev01.rinha.entity.PaymentEntity;
+import com.jpdev01.rinha.entity.TestPayments;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedPaymentStoreTest {
+
+    private static final long NOW = System.currentTimeMillis() / 1000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void summaryAfterOddNumberOfBatchesDoesNotWaitForStaleWriter() {
+        MappedPaymentStore store = store("api1");
+        store.append(batch(3, true));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            assertThat(store.summary(0, Long.MAX_VALUE).defaultSummary().totalRequests()).isEqualTo(3);
+        }
+        // com a versão lida numa ordem de bytes e escrita na outra, cada leitura esperava 1s
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+    }
+
+    @Test
+    void readersNeverSeeHalfABatch() throws Exception {
+        MappedPaymentStore writer = store("api1");
+        MappedPaymentStore reader = store("api2");
+        int batchSize = 64;
+        int batches = 500;
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        Thread readerThread = Thread.ofPlatform().start(() -> {
+            while (!done.get() && torn.get() == null) {
+                PaymentSummaryResponseDTO summary = reader.summary(0, Long.MAX_VALUE);
+                long count = summary.defaultSummary().totalRequests();
+                long amount = summary.defaultSummary().totalAmountCents();
+                // cada pagamento vale 1 centavo: contagem e soma andam juntas, sempre em lotes inteiros
+                if (count % batchSize != 0 || amount != count) {
+                    torn.set("count=" + count + " amount=" + amount);
+                }
+                reads.incrementAndGet();
+            }
+        });
+
+        for (int i = 0; i < batches; i++) {
+            writer.append(batch(batchSize, true));
+        }
+        done.set(true);
+        readerThread.join(10_000);
+
+        assertThat(torn.get()).isNull();
+        assertThat(reads.get()).isPositive();
+        assertThat(reader.summary(0, Long.MAX_VALUE).defaultSummary().totalRequests()).isEqualTo((long) batchSize * batches);
+    }
+
+    @Test
+    void summaryMergesInstancesAndFiltersByRange() {
+        MappedPaymentStore api1 = store("api1");
+        MappedPaymentStore api2 = store("api2");
+        api1.append(List.of(entity(NOW - 10, 100, true), entity(NOW, 200, false)));
+        api2.append(List.of(entity(NOW, 300, true)));
+
+        PaymentSummaryResponseDTO all = api1.summary(0, Long.MAX_VALUE);
+        assertThat(all.defaultSummary().totalRequests()).isEqualTo(2);
+        assertThat(all.defaultSummary().totalAmountCents()).isEqualTo(400);
+        assertThat(all.fallbackSummary().totalRequests()).isEqualTo(1);
+
+        PaymentSummaryResponseDTO recent = api2.summary(NOW - 5, NOW);
+        assertThat(recent.defaultSummary().totalAmountCents()).isEqualTo(300);
+        assertThat(recent.fallbackSummary().totalAmountCents()).isEqualTo(200);
+    }
+
+    @Test
+    void paymentsOutsideIndexWindowAreScanned() {
+        MappedPaymentStore store = store("api1");
+        long old = NOW - 30 * 24 * 3600;
+        store.append(List.of(entity(old, 50, true), entity(NOW, 70, true)));
+
+        assertThat(store.summary(old, old).defaultSummary().totalAmountCents()).isEqualTo(50);
+        assertThat(store.summary(0, Long.MAX_VALUE).defaultSummary().totalAmountCents()).isEqualTo(120);
+    }
+
+    @Test
+    void restartedInstanceKeepsItsSegmentsAndPurgeReachesAllInstances() {
+        MappedPaymentStore api1 = store("api1");
+        api1.append(batch(5, true));
+        MappedPaymentStore restarted = store("api1");
+        restarted.append(batch(2, true));
+        MappedPaymentStore api2 = store("api2");
+
+        assertThat(api2.summary(0, Long.MAX_VALUE).defaultSummary().totalRequests()).isEqualTo(7);
+
+        api2.deleteAll();
+        assertThat(restarted.summary(0, Long.MAX_VALUE).defaultSummary().totalRequests()).isZero();
+        restarted.append(batch(1, true));
+        assertThat(api2.summary(0, Long.MAX_VALUE).defaultSummary().totalRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateCorrelationIdIsStoredOnceAcrossInstancesAndRestarts() {
+        MappedPaymentStore api1 = store("api1");
+        MappedPaymentStore api2 = store("api2");
+        PaymentEntity payment = entity(NOW, 100, true);
+
+        api1.append(List.of(payment, payment));
+        // confirmado de novo depois do replay do journal, e pela outra instância
+        store("api1").append(List.of(payment));
+        api2.append(List.of(new PaymentEntity(payment.getPayment(), false)));
+
+        PaymentSummaryResponseDTO summary = api2.summary(0, Long.MAX_VALUE);
+        assertThat(summary.defaultSummary().totalRequests()).isEqualTo(1);
+        assertThat(summary.fallbackSummary().totalRequests()).isZero();
+
+        api1.deleteAll();
+        api2.append(List.of(payment));
+        assertThat(api1.summary(0, Long.MAX_VALUE).defaultSummary().totalRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void ownBucketsAreThisInstanceOnlyAndSurviveRestart() {
+        MappedPaymentStore api1 = store("api1");
+        MappedPaymentStore api2 = store("api2");
+        long old = NOW - 30 * 24 * 3600;
+        api1.append(List.of(entity(NOW, 100, true), entity(NOW, 200, true), entity(old, 50, false)));
+        api2.append(List.of(entity(NOW, 300, true)));
+
+        List<PaymentBucketDTO> buckets = store("api1").ownBuckets();
+        assertThat(buckets).containsExactlyInAnyOrder(
+                new PaymentBucketDTO(NOW, true, 2, 300),
+                new PaymentBucketDTO(old, false, 1, 50));
+
+        api2.deleteAll();
+        assertThat(store("api1").ownBuckets()).isEmpty();
+    }
+
+    private MappedPaymentStore store(String instance) {
+        MappedPaymentStore store = new MappedPaymentStore();
+        ReflectionTestUtils.setField(store, "mode", "mmap");
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        ReflectionTestUtils.setField(store, "instance", instance);
+        store.init();
+        return store;
+    }
+
+    private List<PaymentEntity> batch(int size, boolean processedAtDefault) {
+        List<PaymentEntity> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(entity(NOW, 1, processedAtDefault));
+        }
+        return batch;
+    }
+
+    private PaymentEntity entity(long requestedAt, long amountCents, boolean processedAtDefault) {
+        return new PaymentEntity(TestPayments.payment(amountCents, requestedAt), processedAtDefault);
+    }
+}
@@ -0,0 +1,92 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.entity.TestPayments;
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
+import com.jpdev01.rinha.service.LaneScheduler.Slot;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LaneSchedulerTest {
+
+    @Test
+    void takesTheOldestHeadAcrossLanes() throws Exception {
+        LaneScheduler scheduler = new LaneScheduler(8);
+        Payment fresh = payment(100);
+        Payment retryDefault = payment(50);
+        Payment retryFallback = payment(75);
+        scheduler.offer(Lane.FRESH, fresh);
+        scheduler.offer(Lane.RETRY_DEFAULT, retryDefault);
+        scheduler.offer(Lane.RETRY_FALLBACK, retryFallback);
+
+        Slot slot = new Slot();
+        scheduler.take(slot);
+        assertThat(slot.payment()).isEqualTo(retryDefault);
+        assertThat(slot.lane()).isEqualTo(Lane.RETRY_DEFAULT);
+        scheduler.take(slot);
+        assertThat(slot.lane()).isEqualTo(Lane.RETRY_FALLBACK);
+        scheduler.take(slot);
+        assertThat(slot.payment()).isEqualTo(fresh);
+        assertThat(slot.lane()).isEqualTo(Lane.FRESH);
+        assertThat(scheduler.poll(slot)).isFalse();
+    }
+
+    @Test
+    void retriesWinTiesOnRequestedAt() {
+        LaneScheduler scheduler = new LaneScheduler(8);
+        scheduler.offer(Lane.FRESH, payment(10));
+        scheduler.offer(Lane.RETRY_FALLBACK, payment(10));
+
+        Slot slot = new Slot();
+        assertThat(scheduler.poll(slot)).isTrue();
+        assertThat(slot.lane()).isEqualTo(Lane.RETRY_FALLBACK);
+    }
+
+    @Test
+    void fullLaneRejectsOnlyItself() {
+        LaneScheduler scheduler = new LaneScheduler(2);
+        assertThat(scheduler.offer(Lane.FRESH, payment(1))).isTrue();
+        assertThat(scheduler.offer(Lane.FRESH, payment(2))).isTrue();
+        assertThat(scheduler.offer(Lane.FRESH, payment(3))).isFalse();
+        assertThat(scheduler.offer(Lane.RETRY_DEFAULT, payment(4))).isTrue();
+
+        assertThat(scheduler.size(Lane.FRESH)).isEqualTo(2);
+        assertThat(scheduler.size()).isEqualTo(3);
+
+        scheduler.clear();
+        assertThat(scheduler.size()).isZero();
+        assertThat(scheduler.size(Lane.FRESH)).isZero();
+    }
+
+    @Test
+    void takeWaitsForAnOffer() throws Exception {
+        LaneScheduler scheduler = new LaneScheduler(8);
+        Payment payment = payment(1);
+        long before = System.nanoTime();
+
+        CompletableFuture<Slot> taken = CompletableFuture.supplyAsync(() -> {
+            Slot slot = new Slot();
+            try {
+                scheduler.take(slot);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return slot;
+        });
+        Thread.sleep(50);
+        assertThat(taken).isNotDone();
+
+        scheduler.offer(Lane.FRESH, payment);
+        Slot slot = taken.get(5, TimeUnit.SECONDS);
+        assertThat(slot.payment()).isEqualTo(payment);
+        assertThat(slot.enqueuedAt()).isGreaterThan(before);
+    }
+
+    private static Payment payment(long requestedAt) {
+        return TestPayments.payment(100, requestedAt);
+    }
+}
@@ -0,0 +1,97 @@
+package com.jpdev01.rinha.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MpmcRingTest {
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new MpmcRing<Integer>(6)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new MpmcRing<Integer>(8).capacity()).isEqualTo(8);
+    }
+
+    @Test
+    void rejectsWhenFullAndReturnsNullWhenEmpty() {
+        MpmcRing<Integer> ring = new MpmcRing<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.poll()).isEqualTo(i);
+        }
+        assertThat(ring.poll()).isNull();
+        assertThat(ring.peek()).isNull();
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void keepsOrderAndStampsAcrossWrapAround() {
+        MpmcRing<Integer> ring = new MpmcRing<>(4);
+        long[] stamp = new long[1];
+        // várias voltas: as sequências das posições continuam valendo depois de reaproveitadas
+        for (int i = 0; i < 20; i++) {
+            assertThat(ring.offer(i, 1000L + i)).isTrue();
+            assertThat(ring.offer(i + 100, 2000L + i)).isTrue();
+            assertThat(ring.peek()).isEqualTo(i);
+            assertThat(ring.poll(stamp)).isEqualTo(i);
+            assertThat(stamp[0]).isEqualTo(1000L + i);
+            assertThat(ring.poll(stamp)).isEqualTo(i + 100);
+            assertThat(stamp[0]).isEqualTo(2000L + i);
+        }
+    }
+
+    @Test
+    void concurrentProducersAndConsumersDeliverEachElementOnce() throws Exception {
+        MpmcRing<Integer> ring = new MpmcRing<>(64);
+        int producers = 2;
+        int perProducer = 20_000;
+        int total = producers * perProducer;
+        AtomicIntegerArray delivered = new AtomicIntegerArray(total);
+        AtomicInteger consumed = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (consumed.get() < total) {
+                    Integer element = ring.poll();
+                    if (element == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    delivered.incrementAndGet(element);
+                    consumed.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        assertThat(consumed.get()).isEqualTo(total);
+        for (int i = 0; i < total; i++) {
+            assertThat(delivered.get(i)).as("element %d", i).isEqualTo(1);
+        }
+        assertThat(ring.size()).isZero();
+    }
+}
@@ -0,0 +1,164 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.entity.TestPayments;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentJournalTest {
+
+    // um registro a mais que um segmento inteiro: força a rotação
+    private static final int SEGMENT_RECORDS = 1 << 17;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void clearQueue() {
+        // o pager devolve o spill do replay para a fila global
+        PaymentQueue.getInstance().clear();
+    }
+
+    @Test
+    void unfinishedPaymentsSurviveRestart() {
+        PaymentJournal journal = journal(new PaymentStatusIndex());
+        Payment first = payment();
+        Payment second = payment();
+        Payment third = payment();
+        journal.append(first);
+        journal.append(second);
+        journal.append(third);
+        journal.done(second);
+
+        // queda sem shutdown: outra instância abre o mesmo diretório
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        PaymentJournal restarted = journal(index);
+        assertThat(restarted.pending()).isEqualTo(2);
+        assertThat(index.tryAccept(first)).isFalse();
+        assertThat(index.tryAccept(third)).isFalse();
+        assertThat(index.tryAccept(second)).isTrue();
+
+        restarted.done(first);
+        restarted.done(third);
+        assertThat(journal(new PaymentStatusIndex()).pending()).isZero();
+    }
+
+    @Test
+    void concurrentAppendsAndConfirmationsAreAllReplayed() throws InterruptedException {
+        PaymentJournal journal = journal(new PaymentStatusIndex());
+        int writers = 8;
+        int perWriter = SEGMENT_RECORDS / 4;
+        List<List<Payment>> batches = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<Payment> batch = new ArrayList<>();
+            for (int i = 0; i < perWriter; i++) {
+                batch.add(payment());
+            }
+            batches.add(batch);
+        }
+
+        // 8 * 32768 aceites + metade confirmada: a rotação acontece com escritas em andamento
+        List<Thread> threads = new ArrayList<>();
+        for (List<Payment> batch : batches) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    journal.append(batch.get(i));
+                    if (i % 2 == 1) journal.done(batch.get(i));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(journal.segments()).isGreaterThan(1);
+        assertThat(journal.pending()).isEqualTo(writers * perWriter / 2);
+
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        PaymentJournal restarted = journal(index);
+        assertThat(restarted.pending()).isEqualTo(writers * perWriter / 2);
+        assertThat(index.tryAccept(batches.get(0).get(0))).isFalse();
+        assertThat(index.tryAccept(batches.get(0).get(1))).isTrue();
+    }
+
+    @Test
+    void clearedSegmentsAreNotReplayed() throws IOException {
+        PaymentJournal journal = journal(new PaymentStatusIndex());
+        for (int i = 0; i <= SEGMENT_RECORDS; i++) {
+            journal.append(payment());
+        }
+        assertThat(journal.segments()).isEqualTo(2);
+
+        journal.clear();
+        assertThat(journalFiles()).isEqualTo(1);
+
+        PaymentJournal restarted = journal(new PaymentStatusIndex());
+        assertThat(restarted.pending()).isZero();
+        assertThat(restarted.spilled()).isZero();
+    }
+
+    @Test
+    void segmentsFreedByReplayAreNotReplayedAgain() throws IOException {
+        PaymentJournal journal = journal(new PaymentStatusIndex());
+        Payment payment = payment();
+        journal.append(payment);
+
+        PaymentJournal restarted = journal(new PaymentStatusIndex());
+        assertThat(restarted.pending()).isEqualTo(1);
+        restarted.done(payment);
+        restarted.clear();
+
+        assertThat(journal(new PaymentStatusIndex()).pending()).isZero();
+        assertThat(journalFiles()).isEqualTo(1);
+    }
+
+    @Test
+    void retrySpilledFromParkingSurvivesRestartUntilDone() {
+        PaymentJournal journal = journal(new PaymentStatusIndex());
+        Payment payment = payment();
+        journal.append(payment);
+
+        assertThat(journal.spillRetry(payment)).isTrue();
+        assertThat(journal.pending()).isEqualTo(1);
+
+        PaymentJournal restarted = journal(new PaymentStatusIndex());
+        assertThat(restarted.pending()).isEqualTo(1);
+        restarted.done(payment);
+        assertThat(journal(new PaymentStatusIndex()).pending()).isZero();
+    }
+
+    @Test
+    void disabledJournalDoesNotTakeRetries() {
+        PaymentJournal journal = new PaymentJournal(new PaymentStatusIndex(), new RetryScheduler());
+        journal.init();
+
+        assertThat(journal.spillRetry(payment())).isFalse();
+    }
+
+    private PaymentJournal journal(PaymentStatusIndex index) {
+        PaymentJournal journal = new PaymentJournal(index, new RetryScheduler());
+        ReflectionTestUtils.setField(journal, "dir", dir.toString());
+        journal.init();
+        return journal;
+    }
+
+    private long journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    private static Payment payment() {
+        return TestPayments.payment(100, 1_700_000_000L);
+    }
+}
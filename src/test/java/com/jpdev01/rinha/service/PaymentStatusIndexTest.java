@@ -0,0 +1,138 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.service.PaymentStatusIndex.Status;
+import com.jpdev01.rinha.state.Processor;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentStatusIndexTest {
+
+    private static final int STRIPE_SLOTS = 1024;
+
+    @Test
+    void removeKeepsTheRestOfTheClusterReachable() {
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        // três com o último slot como casa (o cluster dá a volta) e um com casa no slot 0
+        List<Payment> sameHome = colliding(7, STRIPE_SLOTS - 1, 3);
+        Payment wrapped = colliding(7, 0, 1).get(0);
+        for (Payment payment : sameHome) {
+            assertThat(index.tryAccept(payment)).isTrue();
+        }
+        assertThat(index.tryAccept(wrapped)).isTrue();
+        index.confirm(sameHome.get(2), Processor.FALLBACK);
+        index.beginCall(wrapped);
+
+        index.remove(sameHome.get(0));
+        assertThat(status(index, sameHome.get(0))).isNull();
+        assertThat(status(index, sameHome.get(1))).isEqualTo(Status.ACCEPTED);
+        assertThat(status(index, sameHome.get(2))).isEqualTo(Status.CONFIRMED_FALLBACK);
+        assertThat(status(index, wrapped)).isEqualTo(Status.IN_FLIGHT);
+
+        index.remove(sameHome.get(1));
+        assertThat(status(index, sameHome.get(2))).isEqualTo(Status.CONFIRMED_FALLBACK);
+        assertThat(status(index, wrapped)).isEqualTo(Status.IN_FLIGHT);
+        assertThat(index.size()).isEqualTo(2);
+
+        // removido pode ser aceito de novo; os que ficaram continuam duplicados
+        assertThat(index.tryAccept(sameHome.get(0))).isTrue();
+        assertThat(index.tryAccept(sameHome.get(2))).isFalse();
+        assertThat(index.tryAccept(wrapped)).isFalse();
+    }
+
+    @Test
+    void confirmedIsFinal() {
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        Payment payment = payment(1, 1);
+        assertThat(index.tryAccept(payment)).isTrue();
+        assertThat(index.tryAccept(payment)).isFalse();
+
+        assertThat(index.beginCall(payment)).isTrue();
+        assertThat(status(index, payment)).isEqualTo(Status.IN_FLIGHT);
+        index.callFailed(payment);
+        assertThat(status(index, payment)).isEqualTo(Status.ACCEPTED);
+
+        assertThat(index.confirm(payment, Processor.DEFAULT)).isTrue();
+        assertThat(index.isConfirmed(payment)).isTrue();
+        assertThat(index.confirm(payment, Processor.FALLBACK)).isFalse();
+        assertThat(index.beginCall(payment)).isFalse();
+        index.callFailed(payment);
+        assertThat(status(index, payment)).isEqualTo(Status.CONFIRMED_DEFAULT);
+    }
+
+    @Test
+    void transitionOfAnUnknownPaymentIsRejected() {
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        Payment payment = payment(2, 2);
+
+        assertThat(index.beginCall(payment)).isFalse();
+        index.callFailed(payment);
+        assertThat(index.confirm(payment, Processor.FALLBACK)).isFalse();
+        assertThat(status(index, payment)).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void purgeDuringTheCallDropsTheConfirmation() {
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        Payment payment = payment(3, 3);
+        assertThat(index.tryAccept(payment)).isTrue();
+        assertThat(index.beginCall(payment)).isTrue();
+
+        // o purge limpa o índice enquanto a chamada ao processador está em voo
+        index.clear();
+        assertThat(index.confirm(payment, Processor.DEFAULT)).isFalse();
+        assertThat(status(index, payment)).isNull();
+
+        // a geração nova aceita o mesmo correlationId do zero
+        assertThat(index.tryAccept(payment)).isTrue();
+    }
+
+    @Test
+    void growsAndClears() {
+        PaymentStatusIndex index = new PaymentStatusIndex();
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            assertThat(index.tryAccept(payment(i, ~i))).isTrue();
+        }
+        for (int i = 0; i < count; i += 2) {
+            index.remove(payment(i, ~i));
+        }
+        assertThat(index.size()).isEqualTo(count / 2);
+        for (int i = 0; i < count; i++) {
+            assertThat(index.status(i, ~i)).isEqualTo(i % 2 == 0 ? null : Status.ACCEPTED);
+        }
+
+        index.clear();
+        assertThat(index.size()).isZero();
+        assertThat(index.status(1, ~1)).isNull();
+    }
+
+    // pagamentos com o mesmo stripe e a mesma casa na tabela inicial do stripe
+    private static List<Payment> colliding(int stripe, int slot, int count) {
+        Method mix = ReflectionUtils.findMethod(PaymentStatusIndex.class, "mix", long.class, long.class);
+        ReflectionUtils.makeAccessible(mix);
+        List<Payment> found = new ArrayList<>(count);
+        for (long lsb = 0; found.size() < count; lsb++) {
+            long hash = (long) ReflectionUtils.invokeMethod(mix, null, 42L, lsb);
+            if ((int) (hash >>> 58) == stripe && ((int) hash & (STRIPE_SLOTS - 1)) == slot) {
+                found.add(payment(42L, lsb));
+            }
+        }
+        return found;
+    }
+
+    private static Status status(PaymentStatusIndex index, Payment payment) {
+        return index.status(payment.correlationIdMsb(), payment.correlationIdLsb());
+    }
+
+    private static Payment payment(long msb, long lsb) {
+        return new Payment(msb, lsb, 100, 1_700_000_000L);
+    }
+}
@@ -0,0 +1,84 @@
+package com.jpdev01.rinha.service;
+
+import com.jpdev01.rinha.entity.Payment;
+import com.jpdev01.rinha.entity.TestPayments;
+import com.jpdev01.rinha.service.LaneScheduler.Lane;
+import com.jpdev01.rinha.state.Processor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetrySchedulerTest {
+
+    private final RetryScheduler scheduler = new RetryScheduler();
+
+    @BeforeEach
+    void start() {
+        PaymentQueue.getInstance().clear();
+        scheduler.start();
+    }
+
+    // as threads param antes de limpar: nada chega ao PaymentQueue depois do teste
+    @AfterEach
+    void clear() throws InterruptedException {
+        scheduler.close();
+        scheduler.clear();
+        PaymentQueue.getInstance().clear();
+    }
+
+    @Test
+    void parkingIsBoundedAndTheExcessGoesToTheOverflow() throws Exception {
+        Set<Payment> overflowed = ConcurrentHashMap.newKeySet();
+        scheduler.onOverflow(overflowed::add);
+        int excess = 1_000;
+        for (int i = 0; i < RetryScheduler.PARKING_CAPACITY + excess; i++) {
+            scheduler.schedule(payment(), Processor.FALLBACK);
+        }
+
+        // primeira tentativa: backoff de no máximo 20ms
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (scheduler.delayedSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(scheduler.delayedSize()).isZero();
+        scheduler.close();
+        int parked = scheduler.parkedSize(Processor.FALLBACK);
+        assertThat(parked).isLessThanOrEqualTo(RetryScheduler.PARKING_CAPACITY);
+        // o burst do orçamento sai direto para a lane; o resto estaciona até encher
+        assertThat(overflowed.size()).isBetween(excess - 200, excess);
+        assertThat(scheduler.parkedSize(Processor.DEFAULT)).isZero();
+        assertThat(parked + PaymentQueue.getInstance().size(Lane.RETRY_FALLBACK) + overflowed.size())
+                .isEqualTo(RetryScheduler.PARKING_CAPACITY + excess);
+    }
+
+    @Test
+    void withoutOverflowNothingIsDropped() throws Exception {
+        int excess = 500;
+        for (int i = 0; i < RetryScheduler.PARKING_CAPACITY + excess; i++) {
+            scheduler.schedule(payment(), Processor.DEFAULT);
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (scheduler.delayedSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(scheduler.delayedSize()).isZero();
+        // parado, o que está estacionado não anda mais para a lane entre as duas leituras
+        scheduler.close();
+        int parked = scheduler.parkedSize(Processor.DEFAULT);
+        assertThat(parked).isLessThanOrEqualTo(RetryScheduler.PARKING_CAPACITY);
+        assertThat(parked + PaymentQueue.getInstance().size(Lane.RETRY_DEFAULT))
+                .isEqualTo(RetryScheduler.PARKING_CAPACITY + excess);
+    }
+
+    private static Payment payment() {
+        return TestPayments.payment(100, 1_700_000_000L);
+    }
+}
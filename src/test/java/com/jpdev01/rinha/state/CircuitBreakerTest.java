@@ -0,0 +1,154 @@
+package com.jpdev01.rinha.state;
+
+import com.jpdev01.rinha.state.CircuitBreaker.Snapshot;
+import com.jpdev01.rinha.state.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = 1_000_000;
+    private static final long SLOW = 2_000_000_000L;
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        calls(breaker, 19, FAST, false);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.snapshot().failureRate()).isEqualTo(1.0);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        calls(breaker, 10, FAST, true);
+        calls(breaker, 10, FAST, false);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(State.OPEN);
+        assertThat(breaker.isCallPermitted()).isFalse();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void opensWhenSlowCallRateReachesThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        calls(breaker, 4, FAST, true);
+        calls(breaker, 16, SLOW, true);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(State.OPEN);
+        assertThat(breaker.snapshot().slowCallRate()).isEqualTo(0.8);
+        assertThat(breaker.snapshot().failureRate()).isZero();
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        calls(breaker, 9, FAST, false);
+        calls(breaker, 50, FAST, true);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.snapshot().failureRate()).isZero();
+    }
+
+    @Test
+    void halfOpenAllowsLimitedProbesAndClosesAfterThemSucceed() {
+        CircuitBreaker breaker = openedLongAgo();
+        assertThat(breaker.isCallPermitted()).isTrue();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.snapshot().state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.isCallPermitted()).isFalse();
+
+        calls(breaker, 2, FAST, true);
+        assertThat(breaker.snapshot().state()).isEqualTo(State.HALF_OPEN);
+        calls(breaker, 1, FAST, true);
+        assertThat(breaker.snapshot().state()).isEqualTo(State.CLOSED);
+        // janela nova: as falhas que abriram o circuito não contam mais
+        assertThat(breaker.snapshot().failureRate()).isZero();
+    }
+
+    @Test
+    void failedOrSlowProbeReopens() {
+        CircuitBreaker failed = openedLongAgo();
+        assertThat(failed.tryAcquirePermission()).isTrue();
+        failed.onResult(FAST, false);
+        assertThat(failed.snapshot().state()).isEqualTo(State.OPEN);
+        assertThat(failed.tryAcquirePermission()).isFalse();
+
+        CircuitBreaker slow = openedLongAgo();
+        assertThat(slow.tryAcquirePermission()).isTrue();
+        slow.onResult(SLOW, true);
+        assertThat(slow.snapshot().state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void abandonedProbeIsGivenBack() {
+        CircuitBreaker breaker = openedLongAgo();
+        for (int i = 0; i < 3; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.releasePermission();
+        }
+        assertThat(breaker.snapshot().state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.isCallPermitted()).isTrue();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        breaker.releasePermission();
+        assertThat(breaker.isCallPermitted()).isTrue();
+    }
+
+    @Test
+    void releaseOutsideHalfOpenIsIgnored() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.releasePermission();
+        assertThat(breaker.snapshot().state()).isEqualTo(State.CLOSED);
+
+        CircuitBreaker halfOpen = openedLongAgo();
+        halfOpen.releasePermission();
+        assertThat(halfOpen.tryAcquirePermission()).isTrue();
+        assertThat(halfOpen.tryAcquirePermission()).isTrue();
+        assertThat(halfOpen.tryAcquirePermission()).isTrue();
+        assertThat(halfOpen.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void lateResultsWhileOpenAreIgnoredAndResetCloses() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        calls(breaker, 20, FAST, false);
+        Snapshot opened = breaker.snapshot();
+
+        calls(breaker, 30, FAST, true);
+        assertThat(breaker.snapshot()).isSameAs(opened);
+
+        breaker.reset();
+        assertThat(breaker.snapshot().state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    // aberto há mais tempo que a espera, sem dormir no teste
+    private static CircuitBreaker openedLongAgo() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        calls(breaker, 20, FAST, false);
+        Snapshot opened = breaker.snapshot();
+        assertThat(opened.state()).isEqualTo(State.OPEN);
+        ReflectionTestUtils.setField(breaker, "snapshot",
+                new Snapshot(State.OPEN, opened.failureRate(), opened.slowCallRate(), opened.openedAtMillis() - 60_000));
+        return breaker;
+    }
+
+    private static void calls(CircuitBreaker breaker, int count, long nanos, boolean success) {
+        for (int i = 0; i < count; i++) {
+            breaker.onResult(nanos, success);
+        }
+    }
+}
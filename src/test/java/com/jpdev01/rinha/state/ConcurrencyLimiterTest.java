@@ -0,0 +1,128 @@
+package com.jpdev01.rinha.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void initialLimitIsClampedToBounds() {
+        assertThat(new ConcurrencyLimiter(100, 2, 50).snapshot().limit()).isEqualTo(50);
+        assertThat(new ConcurrencyLimiter(0, 2, 50).snapshot().limit()).isEqualTo(2);
+    }
+
+    @Test
+    void tryAcquireStopsAtTheLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(3, 1, 10);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.snapshot().inFlight()).isEqualTo(3);
+
+        // release sem amostra não mexe no limite
+        limiter.release();
+        assertThat(limiter.snapshot().limit()).isEqualTo(3);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void acquireWaitsForARelease() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        limiter.acquire();
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertThat(waiting).isNotDone();
+
+        limiter.release(RTT, true);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertThat(limiter.snapshot().inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void timedTryAcquireGivesUpAfterTheTimeout() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        assertThat(limiter.tryAcquire(10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.tryAcquire(20, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(limiter.snapshot().inFlight()).isEqualTo(1);
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.tryAcquire(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        limiter.release();
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.snapshot().inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void failuresCutTheLimitDownToTheMinimum() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 4, 20);
+        call(limiter, RTT, false);
+        assertThat(limiter.snapshot().limit()).isEqualTo(9);
+
+        for (int i = 0; i < 50; i++) {
+            call(limiter, RTT, false);
+        }
+        assertThat(limiter.snapshot().limit()).isEqualTo(4);
+    }
+
+    @Test
+    void growsWhileSaturatedWithStableRtt() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 40);
+        for (int round = 0; round < 30; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) acquired++;
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(RTT, true);
+            }
+        }
+
+        ConcurrencyLimiter.Snapshot snapshot = limiter.snapshot();
+        assertThat(snapshot.limit()).isGreaterThan(10).isLessThanOrEqualTo(40);
+        assertThat(snapshot.minRttMillis()).isEqualTo(1.0);
+        assertThat(snapshot.rttMillis()).isEqualTo(1.0);
+    }
+
+    @Test
+    void doesNotGrowWhenMostlyIdle() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 40);
+        for (int i = 0; i < 100; i++) {
+            call(limiter, RTT, true);
+        }
+        assertThat(limiter.snapshot().limit()).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksWhenRttRisesAboveTheMinimum() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 40);
+        call(limiter, RTT, true);
+
+        for (int i = 0; i < 100; i++) {
+            call(limiter, 10 * RTT, true);
+        }
+        assertThat(limiter.snapshot().limit()).isLessThan(20).isGreaterThanOrEqualTo(2);
+    }
+
+    private static void call(ConcurrencyLimiter limiter, long nanos, boolean success) {
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.release(nanos, success);
+    }
+}
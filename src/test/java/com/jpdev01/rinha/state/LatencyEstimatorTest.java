@@ -0,0 +1,79 @@
+package com.jpdev01.rinha.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyEstimatorTest {
+
+    @Test
+    void oneSecondSamplesAreNotCappedByTheHistogram() {
+        LatencyEstimator estimator = new LatencyEstimator();
+        for (int i = 0; i < 500; i++) {
+            estimator.record(TimeUnit.SECONDS.toNanos(1));
+        }
+
+        LatencyEstimator.Estimate estimate = estimator.estimate();
+        // meio do bucket do LatencyHistogram: erro de ~3%
+        assertThat(estimate.p99Millis()).isBetween(970.0, 1_030.0);
+        assertThat(estimate.p50Millis()).isBetween(970.0, 1_030.0);
+        assertThat(estimate.ewmaMillis()).isEqualTo(1_000.0);
+    }
+
+    @Test
+    void slowTailShowsUpInP99Only() {
+        LatencyEstimator estimator = new LatencyEstimator();
+        for (int i = 0; i < 200; i++) {
+            estimator.record(TimeUnit.MILLISECONDS.toNanos(i % 50 == 0 ? 30_000 : 10));
+        }
+
+        LatencyEstimator.Estimate estimate = estimator.estimate();
+        assertThat(estimate.p50Millis()).isBetween(9.7, 10.3);
+        assertThat(estimate.p99Millis()).isBetween(29_100.0, 30_900.0);
+    }
+
+    @Test
+    void samplesBeyondTheLastBucketAreClamped() {
+        LatencyEstimator estimator = new LatencyEstimator();
+        estimator.record(TimeUnit.MINUTES.toNanos(10));
+
+        assertThat(estimator.estimate().p99Millis()).isBetween(60_000.0, 70_000.0);
+    }
+
+    // os percentis só andam na virada da janela; o EWMA anda a cada amostra
+    @Test
+    void percentilesRefreshAtTheWindowBoundary() {
+        LatencyEstimator estimator = new LatencyEstimator();
+        for (int i = 0; i < 256; i++) {
+            estimator.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 127; i++) {
+            estimator.record(TimeUnit.SECONDS.toNanos(1));
+        }
+
+        LatencyEstimator.Estimate stale = estimator.estimate();
+        assertThat(stale.p99Millis()).isBetween(9.7, 10.3);
+        assertThat(stale.ewmaMillis()).isGreaterThan(990.0);
+
+        estimator.record(TimeUnit.SECONDS.toNanos(1));
+        // janela das últimas 256: metade rápida, metade lenta
+        assertThat(estimator.estimate().p99Millis()).isBetween(970.0, 1_030.0);
+    }
+
+    @Test
+    void resetStartsANewWindow() {
+        LatencyEstimator estimator = new LatencyEstimator();
+        for (int i = 0; i < 100; i++) {
+            estimator.record(TimeUnit.SECONDS.toNanos(1));
+        }
+        estimator.reset();
+        assertThat(estimator.estimate().samples()).isZero();
+
+        estimator.record(TimeUnit.MILLISECONDS.toNanos(10));
+        LatencyEstimator.Estimate estimate = estimator.estimate();
+        assertThat(estimate.p99Millis()).isBetween(9.7, 10.3);
+        assertThat(estimate.ewmaMillis()).isEqualTo(10.0);
+    }
+}